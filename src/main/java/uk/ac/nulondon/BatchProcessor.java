@@ -0,0 +1,331 @@
+package uk.ac.nulondon;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * a class running an edit script against every image in a directory at once, writing the edited images to another
+ * directory.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * each image is handled by its own virtual thread, which reads the file and writes the edited image.
+ * decoding and editing are cpu-bound, thus the virtual thread hands them to a pool of a bounded number of platform
+ * threads and waits, which does not block a carrier thread. thus at most `carvingParallelism` images are decoded,
+ * edited or encoded at once. png files are encoded on the pool by a sequential encoder, which does not deflate on
+ * the common fork/join pool, thus the cpu-bound work never takes more than `carvingParallelism` threads.
+ * <br><br>
+ * every file in flight holds its bytes or image in memory, thus at most `2 * carvingParallelism` files are in
+ * flight, from reading to writing. this keeps the pool busy while other files are read or written, without holding
+ * every image of a large directory at once.
+ * <br><br>
+ * an image which fails to be read, edited or written is reported, and does not stop the other images.
+ * <br><br>
+ * an edited image is written under the same name, as a raw image file if it was read from one, else as a png file.
+ * if several files would be written to the same name, e.g. `a.jpg` and `a.png`, none of them is processed,
+ * and each is reported as failed.
+ */
+public class BatchProcessor {
+    /**
+     * the suffixes of the files which can be decoded, in lower case.
+     */
+    private static final Set<String> IMAGE_FILE_SUFFIXES = Set.of(ImageIO.getReaderFileSuffixes());
+    /**
+     * encodes the edited png files on the carving pool, without deflating on the common fork/join pool.
+     */
+    private static final PngEncoder PNG_ENCODER = PngEncoder.DEFAULT.sequential();
+
+    /**
+     * the time taken by each stage of processing a file. `failure` is null if the file was processed, else the
+     * stages after the failed stage have zero durations.
+     */
+    public record FileTiming(
+            String fileName,
+            Duration readTime,
+            Duration decodeTime,
+            Duration editTime,
+            Duration writeTime,
+            Exception failure
+    ) {
+        public Duration totalTime() {return readTime.plus(decodeTime).plus(editTime).plus(writeTime);}
+    }
+
+    private final EditScript recipe;
+    private final ExecutorService carvingExecutor;
+    /**
+     * a permit is held by each file in flight, from before it is read until after it is written.
+     */
+    private final Semaphore fileSlots;
+
+    private BatchProcessor(EditScript recipe, ExecutorService carvingExecutor, int maxFilesInFlight) {
+        this.recipe = recipe;
+        this.carvingExecutor = carvingExecutor;
+        this.fileSlots = new Semaphore(maxFilesInFlight);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // PROCESSING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * runs `recipe` against every image in `inputDirectory`, writing the edited images to `outputDirectory`,
+     * with at most `carvingParallelism` images decoded or edited at once.
+     * returns the timings of the files ordered by name.
+     * `recipe` must not have save steps, and `carvingParallelism` must be positive.
+     */
+    public static List<FileTiming> process(
+            Path inputDirectory,
+            Path outputDirectory,
+            EditScript recipe,
+            int carvingParallelism
+    ) throws IOException {
+        Objects.requireNonNull(inputDirectory);
+        Objects.requireNonNull(outputDirectory);
+        Objects.requireNonNull(recipe);
+        assert !recipe.hasSaveSteps();
+        assert carvingParallelism > 0;
+
+        List<Path> inputPaths;
+        try (Stream<Path> paths = Files.list(inputDirectory)) {
+            inputPaths = paths.filter(Files::isRegularFile)
+                              .filter(BatchProcessor::isImageFile)
+                              .sorted()
+                              .toList();
+        }
+        Files.createDirectories(outputDirectory);
+        Map<String, List<Path>> inputPathsByOutputFileName = inputPaths
+                .stream()
+                .collect(Collectors.groupingBy(BatchProcessor::getOutputFileName));
+
+        List<FileTiming> fileTimings = new ArrayList<>();
+        try (
+                ExecutorService carvingExecutor = Executors.newFixedThreadPool(carvingParallelism);
+                ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor()
+        ) {
+            BatchProcessor batchProcessor = new BatchProcessor(recipe, carvingExecutor, 2 * carvingParallelism);
+            List<Future<FileTiming>> futureFileTimings = new ArrayList<>();
+            for (Path inputPath : inputPaths) {
+                String outputFileName = getOutputFileName(inputPath);
+                List<Path> collidingInputPaths = inputPathsByOutputFileName.get(outputFileName);
+                if (collidingInputPaths.size() > 1) {
+                    IOException failure = new IOException(
+                            "the files " + getFileNames(collidingInputPaths) + " would all be written to "
+                                    + outputFileName
+                    );
+                    futureFileTimings.add(CompletableFuture.completedFuture(getFailedFileTiming(inputPath, failure)));
+                    continue;
+                }
+                Path outputPath = outputDirectory.resolve(outputFileName);
+                futureFileTimings.add(ioExecutor.submit(() -> batchProcessor.process(inputPath, outputPath)));
+            }
+            for (Future<FileTiming> futureFileTiming : futureFileTimings) {
+                // failures are caught by each file's task, thus getting a timing only fails if interrupted.
+                fileTimings.add(await(futureFileTiming));
+            }
+        }
+        return fileTimings;
+    }
+
+    /**
+     * processes a single file, returning its timing.
+     */
+    private FileTiming process(Path inputPath, Path outputPath) {
+        try {
+            fileSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return getFailedFileTiming(inputPath, e);
+        }
+        try {
+            return processInSlot(inputPath, outputPath);
+        } finally {
+            fileSlots.release();
+        }
+    }
+
+    private FileTiming processInSlot(Path inputPath, Path outputPath) {
+        String fileName = inputPath.getFileName().toString();
+        Duration[] stageTimes = {Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO};
+        try {
+            long startTime = System.nanoTime();
+            boolean isRawImageFile = fileName.endsWith(RawImageFile.EXTENSION);
+            // raw image files are mapped rather than decoded, thus there is nothing to hand to the pool.
+            Image rawImage = isRawImageFile ? RawImageFile.read(inputPath) : null;
+            byte[] bytes = isRawImageFile ? null : Files.readAllBytes(inputPath);
+            stageTimes[0] = Duration.ofNanos(System.nanoTime() - startTime);
+
+            Image image = isRawImageFile ? rawImage : runOnCarvingPool(() -> {
+                long decodeStartTime = System.nanoTime();
+                BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(bytes));
+                if (bufferedImage == null) throw new IOException(fileName + " is not in a supported image format");
+                Image decodedImage = Image.fromBufferedImage(bufferedImage);
+                stageTimes[1] = Duration.ofNanos(System.nanoTime() - decodeStartTime);
+                return decodedImage;
+            });
+
+            Image editedImage = runOnCarvingPool(() -> {
+                long editStartTime = System.nanoTime();
+                ImageEditor imageEditor = new ImageEditor(image);
+                recipe.run(imageEditor);
+                Image newImage = imageEditor.getImage();
+                stageTimes[2] = Duration.ofNanos(System.nanoTime() - editStartTime);
+                return newImage;
+            });
+
+            long writeStartTime = System.nanoTime();
+            if (isRawImageFile) {
+                RawImageFile.write(editedImage, outputPath);
+            } else {
+                byte[] png = runOnCarvingPool(() -> PNG_ENCODER.encode(editedImage));
+                Files.write(outputPath, png);
+            }
+            stageTimes[3] = Duration.ofNanos(System.nanoTime() - writeStartTime);
+            return new FileTiming(fileName, stageTimes[0], stageTimes[1], stageTimes[2], stageTimes[3], null);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return new FileTiming(fileName, stageTimes[0], stageTimes[1], stageTimes[2], stageTimes[3], e);
+        }
+    }
+
+    /**
+     * runs `task` on the carving pool and waits for its result, rethrowing its failure.
+     */
+    private <T> T runOnCarvingPool(Callable<T> task) throws Exception {
+        try {
+            return carvingExecutor.submit(task).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while processing images");
+        } catch (ExecutionException e) {
+            throw new IOException("failed to process an image", e.getCause());
+        }
+    }
+
+    private static FileTiming getFailedFileTiming(Path inputPath, Exception failure) {
+        String fileName = inputPath.getFileName().toString();
+        return new FileTiming(fileName, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, failure);
+    }
+
+    private static String getFileNames(List<Path> paths) {
+        return paths.stream()
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.joining(", "));
+    }
+
+    private static boolean isImageFile(Path path) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(RawImageFile.EXTENSION)) return true;
+
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex >= 0 && IMAGE_FILE_SUFFIXES.contains(fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String getOutputFileName(Path inputPath) {
+        String fileName = inputPath.getFileName().toString();
+        if (fileName.endsWith(RawImageFile.EXTENSION)) return fileName;
+
+        return fileName.substring(0, fileName.lastIndexOf('.')) + ".png";
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // REPORTING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns a table of the timings in milliseconds, with a row per file and a row of totals.
+     */
+    public static String formatReport(List<FileTiming> fileTimings) {
+        Objects.requireNonNull(fileTimings);
+
+        StringBuilder report = new StringBuilder();
+        String rowFormat = "%-32s %10s %10s %10s %10s %10s%n";
+        report.append(String.format(rowFormat, "file", "read ms", "decode ms", "edit ms", "write ms", "total ms"));
+        Duration[] totals = {Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO};
+        int failureCount = 0;
+        for (FileTiming fileTiming : fileTimings) {
+            report.append(String.format(
+                    rowFormat,
+                    fileTiming.fileName(),
+                    fileTiming.readTime().toMillis(),
+                    fileTiming.decodeTime().toMillis(),
+                    fileTiming.editTime().toMillis(),
+                    fileTiming.writeTime().toMillis(),
+                    fileTiming.totalTime().toMillis()
+            ));
+            if (fileTiming.failure() != null) {
+                report.append("    failed: ").append(fileTiming.failure()).append(System.lineSeparator());
+                failureCount++;
+            }
+            totals[0] = totals[0].plus(fileTiming.readTime());
+            totals[1] = totals[1].plus(fileTiming.decodeTime());
+            totals[2] = totals[2].plus(fileTiming.editTime());
+            totals[3] = totals[3].plus(fileTiming.writeTime());
+        }
+        report.append(String.format(
+                rowFormat,
+                fileTimings.size() + " files, " + failureCount + " failed",
+                totals[0].toMillis(),
+                totals[1].toMillis(),
+                totals[2].toMillis(),
+                totals[3].toMillis(),
+                totals[0].plus(totals[1]).plus(totals[2]).plus(totals[3]).toMillis()
+        ));
+        return report.toString();
+    }
+
+    /**
+     * with the arguments `<input directory> <output directory> <recipe file path> [<carving threads>]`,
+     * runs the edit script in the recipe file against every image in the input directory, then prints the timings.
+     * the recipe must not have save steps. by default, there are as many carving threads as processors.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            System.err.println("usage: BatchProcessor <input directory> <output directory> <recipe file path> "
+                    + "[<carving threads>]");
+            System.exit(2);
+        }
+        EditScript recipe = EditScript.fromFilePath(args[2]);
+        if (recipe.hasSaveSteps()) {
+            System.err.println("the recipe must not have save steps, as edited images are written to the output "
+                    + "directory");
+            System.exit(2);
+        }
+        int carvingParallelism = args.length == 4
+                ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        List<FileTiming> fileTimings = process(Path.of(args[0]), Path.of(args[1]), recipe, carvingParallelism);
+        System.out.print(formatReport(fileTimings));
+    }
+}
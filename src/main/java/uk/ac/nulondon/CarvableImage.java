@@ -0,0 +1,24 @@
+package uk.ac.nulondon;
+
+/**
+ * an immutable image from which columns and vertical seams can be removed, giving new images of the same kind.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * `Image` holds its pixels in memory and `TiledImage` holds them on disk, thus code which only removes columns and
+ * seams, e.g. a carving loop with `SeamFinder.findVerticalSeam(PixelSource)`, runs on either.
+ */
+public interface CarvableImage<T extends CarvableImage<T>> extends PixelSource {
+    /**
+     * returns a new image without the x'th column.
+     * x must be in the range [0, width), and the image must be more than one pixel wide.
+     */
+    T removeColumn(int x);
+
+    /**
+     * returns a new image without the pixels of the vertical seam `seam`.
+     * the length of `seam` must equal the image's height, every x must be in the range [0, width),
+     * and the image must be more than one pixel wide.
+     */
+    T removeSeam(int[] seam);
+}
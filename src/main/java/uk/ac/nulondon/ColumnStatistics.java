@@ -0,0 +1,238 @@
+package uk.ac.nulondon;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * a class holding the sums of the red, green and blue components and of the energies of every column of an image.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the sums are stored in primitive arrays indexed by x, thus finding an extreme column (e.g. the bluest column)
+ * takes O(width) time and allocates nothing.
+ * <br><br>
+ * the statistics can be updated in place when a column is removed from or inserted into the image.
+ * only the sums of the changed column are computed, which takes O(height) time,
+ * and the other columns' sums are shifted.
+ * <br><br>
+ * removing a column changes the energies of its neighbours, thus energy sums are only kept up to date when
+ * the updated energy map is given. otherwise they are discarded, and must be computed again before being queried.
+ */
+public class ColumnStatistics {
+    private long[] redSums;
+    private long[] greenSums;
+    private long[] blueSums;
+    /**
+     * null if the energy sums are not known.
+     */
+    private double[] energySums;
+    private int width;
+    private final int height;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    private ColumnStatistics(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.redSums = new long[width];
+        this.greenSums = new long[width];
+        this.blueSums = new long[width];
+    }
+
+    /**
+     * returns the statistics of the given non-null image, without energy sums.
+     */
+    public static ColumnStatistics of(Image image) {
+        Objects.requireNonNull(image);
+
+        ColumnStatistics columnStatistics = new ColumnStatistics(image.getWidth(), image.getHeight());
+        for (int x = 0; x < columnStatistics.width; x++) {
+            columnStatistics.computeColorSums(x, image.getColumnRGB(x));
+        }
+        return columnStatistics;
+    }
+
+    /**
+     * returns the statistics of the given non-null image, whose energy map is the given non-null energy map.
+     */
+    public static ColumnStatistics of(Image image, EnergyMap energyMap) {
+        ColumnStatistics columnStatistics = of(image);
+        columnStatistics.computeEnergySums(energyMap);
+        return columnStatistics;
+    }
+
+    /**
+     * computes the energy sums of every column from the given non-null energy map of the image.
+     */
+    public void computeEnergySums(EnergyMap energyMap) {
+        Objects.requireNonNull(energyMap);
+        assert energyMap.getWidth() == width && energyMap.getHeight() == height;
+
+        energySums = new double[redSums.length];
+        for (int x = 0; x < width; x++) {
+            energySums[x] = energyMap.getColumnEnergy(x);
+        }
+    }
+
+    public boolean hasEnergySums() {return energySums != null;}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // UPDATES
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * updates these statistics to be those of the image without its x'th column.
+     * x must be in the range [0, width).
+     * <br><br>
+     * if `energyMap` is the energy map of the image without the column, the energy sums are kept up to date.
+     * if `energyMap` is null, the energy sums are discarded.
+     */
+    public void removeColumn(int x, EnergyMap energyMap) {
+        assert existsColumnAt(x);
+
+        int newWidth = width - 1;
+        System.arraycopy(redSums, x + 1, redSums, x, newWidth - x);
+        System.arraycopy(greenSums, x + 1, greenSums, x, newWidth - x);
+        System.arraycopy(blueSums, x + 1, blueSums, x, newWidth - x);
+        width = newWidth;
+        if (energySums == null) return;
+        if (energyMap == null) {
+            energySums = null;
+            return;
+        }
+
+        assert energyMap.getWidth() == width && energyMap.getHeight() == height;
+        System.arraycopy(energySums, x + 1, energySums, x, newWidth - x);
+        // only the columns that were adjacent to the removed column have new energies.
+        for (int neighbourX = Math.max(x - 1, 0); neighbourX < Math.min(x + 1, width); neighbourX++) {
+            energySums[neighbourX] = energyMap.getColumnEnergy(neighbourX);
+        }
+    }
+
+    /**
+     * updates these statistics to be those of the image with the packed rgb values `column` inserted before
+     * its x'th column. x must be in the range [0, width]. the energy sums are discarded.
+     */
+    public void insertColumn(int x, int[] column) {
+        Objects.requireNonNull(column);
+        assert existsColumnAt(x) || x == width;
+        assert column.length == height;
+
+        if (width == redSums.length) {
+            int capacity = Math.max(2 * redSums.length, 1);
+            redSums = Arrays.copyOf(redSums, capacity);
+            greenSums = Arrays.copyOf(greenSums, capacity);
+            blueSums = Arrays.copyOf(blueSums, capacity);
+        }
+        System.arraycopy(redSums, x, redSums, x + 1, width - x);
+        System.arraycopy(greenSums, x, greenSums, x + 1, width - x);
+        System.arraycopy(blueSums, x, blueSums, x + 1, width - x);
+        width++;
+        computeColorSums(x, column);
+        energySums = null;
+    }
+
+    private void computeColorSums(int x, int[] column) {
+        long redSum = 0;
+        long greenSum = 0;
+        long blueSum = 0;
+        for (int rgb : column) {
+            redSum += (rgb >> 16) & 0xFF;
+            greenSum += (rgb >> 8) & 0xFF;
+            blueSum += rgb & 0xFF;
+        }
+        redSums[x] = redSum;
+        greenSums[x] = greenSum;
+        blueSums[x] = blueSum;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // QUERIES
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the index of the column with the greatest sum of red components.
+     * if several columns have the greatest sum, the left-most one's index is returned.
+     */
+    public int getReddestColumnIndex() {return getMaxIndex(redSums);}
+
+    /**
+     * returns the index of the column with the greatest sum of green components.
+     * if several columns have the greatest sum, the left-most one's index is returned.
+     */
+    public int getGreenestColumnIndex() {return getMaxIndex(greenSums);}
+
+    /**
+     * returns the index of the column with the greatest sum of blue components.
+     * if several columns have the greatest sum, the left-most one's index is returned.
+     */
+    public int getBluestColumnIndex() {return getMaxIndex(blueSums);}
+
+    /**
+     * returns the index of the column with the least sum of energies.
+     * if several columns have the least sum, the left-most one's index is returned.
+     * the energy sums must be known.
+     */
+    public int getLowestEnergyColumnIndex() {
+        assert hasEnergySums();
+
+        int minX = 0;
+        for (int x = 1; x < width; x++) {
+            if (energySums[x] < energySums[minX]) {
+                minX = x;
+            }
+        }
+        return minX;
+    }
+
+    private int getMaxIndex(long[] sums) {
+        int maxX = 0;
+        for (int x = 1; x < width; x++) {
+            if (sums[x] > sums[maxX]) {
+                maxX = x;
+            }
+        }
+        return maxX;
+    }
+
+    public long getRedSum(int x) {
+        assert existsColumnAt(x);
+
+        return redSums[x];
+    }
+
+    public long getGreenSum(int x) {
+        assert existsColumnAt(x);
+
+        return greenSums[x];
+    }
+
+    public long getBlueSum(int x) {
+        assert existsColumnAt(x);
+
+        return blueSums[x];
+    }
+
+    /**
+     * returns the sum of the energies of the x'th column.
+     * the energy sums must be known.
+     */
+    public double getEnergySum(int x) {
+        assert existsColumnAt(x);
+        assert hasEnergySums();
+
+        return energySums[x];
+    }
+
+    public int getWidth() {return width;}
+
+    public int getHeight() {return height;}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // EXISTENCE
+    ///////////////////////////////////////////////////////////////////////////
+
+    public boolean existsColumnAt(int x) {return 0 <= x && x < width;}
+}
@@ -0,0 +1,201 @@
+package uk.ac.nulondon;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * an immutable directed graph stored in compressed sparse row form.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * nodes are identified by ids in the range [0, nodeCount), assigned in the order the nodes are first encountered.
+ * <br><br>
+ * the edges leaving the node `id` are the edges in the range [offsets[id], offsets[id + 1]).
+ * the i'th edge leads to `targets[i]` and has the weight `weights[i]`.
+ * thus a graph with E edges takes 16 bytes per edge, with the edges of each node adjacent in memory.
+ */
+public class CsrGraph implements Graph {
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    /**
+     * `nodes.get(id)` is the node with the id `id`.
+     */
+    private final List<Node> nodes;
+    private final Map<Node, Integer> ids;
+
+    private CsrGraph(int[] offsets, int[] targets, double[] weights, List<Node> nodes, Map<Node, Integer> ids) {
+        assert offsets.length == nodes.size() + 1;
+        assert targets.length == weights.length && targets.length == offsets[nodes.size()];
+
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nodes = nodes;
+        this.ids = ids;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns a new graph with the given edges, each directed from `nodeA` to `nodeB`.
+     */
+    public static CsrGraph fromEdges(Collection<Edge> edges) {
+        Objects.requireNonNull(edges);
+
+        return fromEdges(edges.stream());
+    }
+
+    /**
+     * returns a new graph with the given edges, each directed from `nodeA` to `nodeB`.
+     */
+    public static CsrGraph fromEdges(Stream<Edge> edgeStream) {
+        Objects.requireNonNull(edgeStream);
+
+        List<Edge> edges = edgeStream.toList();
+        int edgeCount = edges.size();
+        List<Node> nodes = new ArrayList<>();
+        Map<Node, Integer> ids = new HashMap<>();
+        int[] sources = new int[edgeCount];
+        int[] unsortedTargets = new int[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            sources[edge] = getOrAssignId(edges.get(edge).nodeA(), nodes, ids);
+            unsortedTargets[edge] = getOrAssignId(edges.get(edge).nodeB(), nodes, ids);
+        }
+
+        // each edge is sorted by a key whose upper half is its source and whose lower half is its index.
+        // thus edges are grouped by source, and edges with the same source keep their order.
+        long[] keys = new long[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            keys[edge] = ((long) sources[edge] << 32) | edge;
+        }
+        Arrays.parallelSort(keys);
+
+        int nodeCount = nodes.size();
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            int edge = (int) keys[i];
+            targets[i] = unsortedTargets[edge];
+            weights[i] = edges.get(edge).weight();
+            offsets[sources[edge] + 1]++;
+        }
+        for (int id = 0; id < nodeCount; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        return new CsrGraph(offsets, targets, weights, nodes, ids);
+    }
+
+    /**
+     * returns a new graph of the given nodes, with an edge from each node to each of its adjacent nodes.
+     * edges to nodes not in `graph` are ignored.
+     */
+    public static CsrGraph fromNodes(Set<Node> graph) {
+        Objects.requireNonNull(graph);
+
+        List<Node> nodes = new ArrayList<>(graph);
+        Map<Node, Integer> ids = new HashMap<>();
+        for (int id = 0; id < nodes.size(); id++) {
+            ids.put(nodes.get(id), id);
+        }
+
+        int nodeCount = nodes.size();
+        int[] offsets = new int[nodeCount + 1];
+        for (int id = 0; id < nodeCount; id++) {
+            int edgeCount = 0;
+            for (Map.Entry<Node, Double> entry : nodes.get(id).getAdjacentNodeDistances()) {
+                if (ids.containsKey(entry.getKey())) edgeCount++;
+            }
+            offsets[id + 1] = offsets[id] + edgeCount;
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        double[] weights = new double[offsets[nodeCount]];
+        for (int id = 0; id < nodeCount; id++) {
+            int edge = offsets[id];
+            for (Map.Entry<Node, Double> entry : nodes.get(id).getAdjacentNodeDistances()) {
+                Integer targetId = ids.get(entry.getKey());
+                if (targetId == null) continue;
+
+                targets[edge] = targetId;
+                weights[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        return new CsrGraph(offsets, targets, weights, nodes, ids);
+    }
+
+    private static int getOrAssignId(Node node, List<Node> nodes, Map<Node, Integer> ids) {
+        Objects.requireNonNull(node);
+
+        Integer id = ids.get(node);
+        if (id != null) return id;
+
+        ids.put(node, nodes.size());
+        nodes.add(node);
+        return nodes.size() - 1;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ACCESS
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getNodeCount() {return nodes.size();}
+
+    public int getEdgeCount() {return targets.length;}
+
+    /**
+     * returns the node with the id `id`, which must be in the range [0, nodeCount).
+     */
+    public Node getNode(int id) {
+        assert existsNode(id);
+
+        return nodes.get(id);
+    }
+
+    /**
+     * returns the id of `node`, which must be in this graph.
+     */
+    public int getId(Node node) {
+        assert containsNode(node);
+
+        return ids.get(node);
+    }
+
+    public boolean containsNode(Node node) {return ids.containsKey(node);}
+
+    public boolean existsNode(int id) {return 0 <= id && id < nodes.size();}
+
+    /**
+     * returns the number of edges leaving the node `id`.
+     */
+    @Override
+    public int getEdgeCount(int id) {
+        assert existsNode(id);
+
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * returns the id of the node the i'th edge leaving the node `id` leads to.
+     */
+    @Override
+    public int getTarget(int id, int i) {
+        assert 0 <= i && i < getEdgeCount(id);
+
+        return targets[offsets[id] + i];
+    }
+
+    /**
+     * returns the weight of the i'th edge leaving the node `id`.
+     */
+    @Override
+    public double getWeight(int id, int i) {
+        assert 0 <= i && i < getEdgeCount(id);
+
+        return weights[offsets[id] + i];
+    }
+}
@@ -2,32 +2,107 @@ package uk.ac.nulondon;
 
 import java.util.*;
 
-import static java.util.Comparator.comparing;
-import static uk.ac.nulondon.CollectionUtilities.getSetDifference;
-import static uk.ac.nulondon.CollectionUtilities.initializeMap;
-
+/**
+ * finds shortest paths with dijkstra's algorithm.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * nodes are identified by ids in the range [0, nodeCount), and distances and predecessors are stored in primitive
+ * arrays indexed by id. the unvisited node closest to the start node is found with an `IndexedMinHeap`,
+ * thus a search takes O(E log V) time and allocates nothing per step.
+ * <br><br>
+ * a search accepts any `Graph`, whether its edges are stored (e.g. `CsrGraph`) or computed on demand
+ * (e.g. `PixelGridGraph`). edge weights must not be negative.
+ */
 public class DijkstrasAlgorithm {
+    private static final int NO_PREDECESSOR = -1;
+
+    /**
+     * returns the nodes of a shortest path from `startNode` to `endNode`, both inclusive.
+     * returns an empty list if there is no path.
+     * only nodes in `graph` are considered, and the distance of an edge is its node's distance to the adjacent node.
+     */
     public static List<Node> getShortestPath(Node startNode, Node endNode, Set<Node> graph) {
         assert graph.contains(startNode) && graph.contains(endNode);
 
-        // distances from the startNode to every other node in the graph
-        Map<Node, Double> distanceMap = initializeMap(graph, node -> Double.MAX_VALUE);
-        distanceMap.put(startNode, 0D);
+        return getShortestPath(startNode, endNode, CsrGraph.fromNodes(graph));
+    }
+
+    /**
+     * returns the nodes of a shortest path from `startNode` to `endNode`, both inclusive.
+     * returns an empty list if there is no path.
+     */
+    public static List<Node> getShortestPath(Node startNode, Node endNode, CsrGraph graph) {
+        assert graph.containsNode(startNode) && graph.containsNode(endNode);
+
+        int[] path = getShortestPath(graph, graph.getId(startNode), graph.getId(endNode));
+        List<Node> nodePath = new ArrayList<>(path.length);
+        for (int id : path) {
+            nodePath.add(graph.getNode(id));
+        }
+        return nodePath;
+    }
+
+    /**
+     * returns the ids of the nodes of a shortest path from `startId` to `endId` in `graph`, both inclusive.
+     * returns an empty array if there is no path.
+     */
+    public static int[] getShortestPath(Graph graph, int startId, int endId) {
+        Objects.requireNonNull(graph);
+        int nodeCount = graph.getNodeCount();
+        assert 0 <= startId && startId < nodeCount;
+        assert 0 <= endId && endId < nodeCount;
 
-        Set<Node> unvisitedNodes = new HashSet<>(graph);
-        Node currentNode = startNode;
+        double[] distances = new double[nodeCount];
+        int[] predecessors = new int[nodeCount];
+        boolean[] isVisited = new boolean[nodeCount];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessors, NO_PREDECESSOR);
+
+        IndexedMinHeap unvisitedNodes = new IndexedMinHeap(nodeCount);
+        distances[startId] = 0;
+        unvisitedNodes.insert(startId, 0);
 
         while (!unvisitedNodes.isEmpty()) {
-            Map<Node, Double> currentNodeDistanceMap = currentNode.getDistanceMap();
-            Set<Node> adjacentNodes = currentNodeDistanceMap.keySet();
-            Node closestNode = getClosestNode(currentNode, adjacentNodes);
+            int currentId = unvisitedNodes.pollMin();
+            isVisited[currentId] = true;
+            if (currentId == endId) break;
+
+            double currentDistance = distances[currentId];
+            int edgeCount = graph.getEdgeCount(currentId);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                int targetId = graph.getTarget(currentId, edge);
+                if (isVisited[targetId]) continue;
+
+                double distance = currentDistance + graph.getWeight(currentId, edge);
+                if (distance >= distances[targetId]) continue;
+
+                distances[targetId] = distance;
+                predecessors[targetId] = currentId;
+                if (unvisitedNodes.contains(targetId)) {
+                    unvisitedNodes.decreaseKey(targetId, distance);
+                } else {
+                    unvisitedNodes.insert(targetId, distance);
+                }
+            }
         }
-        return List.of();
+        if (!isVisited[endId]) return new int[0];
+
+        return getPath(predecessors, endId);
     }
 
-    private static Node getClosestNode(Node currentNode, Set<Node> adjacentNodes) {
-        return adjacentNodes.stream()
-                            .min(comparing(currentNode::getDistanceTo))
-                            .orElseThrow();
+    /**
+     * returns the ids of the nodes on the path ending at `endId`, following `predecessors` back to the start.
+     */
+    private static int[] getPath(int[] predecessors, int endId) {
+        int length = 0;
+        for (int id = endId; id != NO_PREDECESSOR; id = predecessors[id]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int id = endId; id != NO_PREDECESSOR; id = predecessors[id]) {
+            path[--length] = id;
+        }
+        return path;
     }
 }
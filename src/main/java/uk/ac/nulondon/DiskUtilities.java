@@ -2,8 +2,12 @@ package uk.ac.nulondon;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -19,6 +23,30 @@ public class DiskUtilities {
         ImageIO.write(bufferedImage, "png", newFile);
     }
 
+    /**
+     * writes `image` as a png file to the specified file path, encoded by `pngEncoder`.
+     * e.g. `PngEncoder.STORE` or `PngEncoder.FAST` write intermediate files much faster than `ImageIO`.
+     */
+    public static void writeToDisk(
+            Image image, String filePath, PngEncoder pngEncoder) throws IOException {
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(filePath))) {
+            pngEncoder.encode(image, outputStream);
+        }
+    }
+
+    /**
+     * writes `image` to the specified file path, as a raw image file if the path ends with `.nuraw`,
+     * else as a png file encoded by `PngEncoder.DEFAULT`.
+     */
+    public static void writeToDisk(Image image, String filePath) throws IOException {
+        if (filePath.endsWith(RawImageFile.EXTENSION)) {
+            RawImageFile.write(image, Path.of(filePath));
+            return;
+        }
+        writeToDisk(image, filePath, PngEncoder.DEFAULT);
+    }
+
     /**
      * returns true if a file exists at `filePath`, else false.
      */
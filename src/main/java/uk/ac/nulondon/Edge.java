@@ -1,3 +1,6 @@
 package uk.ac.nulondon;
 
+/**
+ * an edge directed from `nodeA` to `nodeB`.
+ */
 public record Edge(Node nodeA, Node nodeB, double weight){}
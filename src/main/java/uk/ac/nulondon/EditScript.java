@@ -0,0 +1,181 @@
+package uk.ac.nulondon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * a script of edits which is run against an image editor without user input.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * a script has one step per line. blank lines and lines starting with `#` are ignored. the steps are:
+ * <br><br>
+ * `highlight-bluest`: highlights the bluest column.
+ * <br>
+ * `highlight-random`: highlights a random column.
+ * <br>
+ * `delete`: deletes the highlighted column.
+ * <br>
+ * `undo`: undoes the last edit.
+ * <br>
+ * `carve <count>`: removes the `count` lowest-energy seams in a single pass.
+ * <br>
+ * `save <file path>`: writes the current image, as a raw image file if the path ends with `.nuraw`,
+ * else as a png file.
+ * <br><br>
+ * unlike the interactive editor, nothing is written except by `save` steps.
+ */
+public class EditScript {
+    /**
+     * a step of a script, whose `line` is its 1-based line number in the script.
+     */
+    private sealed interface Step permits HighlightBluestStep, HighlightRandomStep, DeleteStep, UndoStep, CarveStep,
+            SaveStep {
+        int line();
+    }
+
+    private record HighlightBluestStep(int line) implements Step {}
+
+    private record HighlightRandomStep(int line) implements Step {}
+
+    private record DeleteStep(int line) implements Step {}
+
+    private record UndoStep(int line) implements Step {}
+
+    private record CarveStep(int line, int count) implements Step {}
+
+    private record SaveStep(int line, String filePath) implements Step {}
+
+    private final List<Step> steps;
+
+    private EditScript(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // PARSING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the script in the file at `filePath`.
+     * if a line is not a step, an `IllegalArgumentException` is thrown.
+     */
+    public static EditScript fromFilePath(String filePath) throws IOException {
+        Objects.requireNonNull(filePath);
+
+        return parse(Files.readAllLines(Path.of(filePath)));
+    }
+
+    /**
+     * returns the script whose lines are `lines`.
+     * if a line is not a step, an `IllegalArgumentException` is thrown.
+     */
+    public static EditScript parse(List<String> lines) {
+        Objects.requireNonNull(lines);
+
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String trimmedLine = lines.get(i).strip();
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) continue;
+
+            steps.add(parseStep(i + 1, trimmedLine));
+        }
+        return new EditScript(steps);
+    }
+
+    private static Step parseStep(int line, String trimmedLine) {
+        String[] words = trimmedLine.split("\\s+", 2);
+        String argument = words.length == 2 ? words[1] : null;
+        Step step = switch (words[0]) {
+            case "highlight-bluest" -> new HighlightBluestStep(line);
+            case "highlight-random" -> new HighlightRandomStep(line);
+            case "delete" -> new DeleteStep(line);
+            case "undo" -> new UndoStep(line);
+            case "carve" -> new CarveStep(line, parseCount(line, argument));
+            case "save" -> {
+                if (argument == null) throw new IllegalArgumentException("line " + line + ": save needs a file path");
+                yield new SaveStep(line, argument);
+            }
+            default -> throw new IllegalArgumentException("line " + line + ": unknown step " + words[0]);
+        };
+        boolean hasUnexpectedArgument = argument != null && !(step instanceof CarveStep || step instanceof SaveStep);
+        if (hasUnexpectedArgument) {
+            throw new IllegalArgumentException("line " + line + ": " + words[0] + " takes no argument");
+        }
+        return step;
+    }
+
+    private static int parseCount(int line, String argument) {
+        // at most 9 digits, thus the count fits in an int.
+        boolean isCount = argument != null && argument.matches("\\d{1,9}") && Integer.parseInt(argument) > 0;
+        if (isCount) return Integer.parseInt(argument);
+        throw new IllegalArgumentException("line " + line + ": carve needs a positive count");
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // RUNNING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * loads the image at `imageFilePath`, then runs this script against an editor of it.
+     * returns the editor, whose image is the image after the last step.
+     */
+    public ImageEditor run(String imageFilePath) throws IOException {
+        StreamingImageLoader.LoadedImage loadedImage = StreamingImageLoader.load(imageFilePath);
+        ImageEditor imageEditor = new ImageEditor(loadedImage.image(), loadedImage.energyMap());
+        run(imageEditor);
+        return imageEditor;
+    }
+
+    /**
+     * runs this script's steps in order against `imageEditor`.
+     * if a step cannot be applied to the editor's image, e.g. `delete` without a highlighted column,
+     * an `IllegalStateException` is thrown and the later steps are not run.
+     */
+    public void run(ImageEditor imageEditor) throws IOException {
+        Objects.requireNonNull(imageEditor);
+
+        for (Step step : steps) {
+            run(step, imageEditor);
+        }
+    }
+
+    private static void run(Step step, ImageEditor imageEditor) throws IOException {
+        int width = imageEditor.getUnhighlightedImage().getWidth();
+        switch (step) {
+            case HighlightBluestStep ignored -> imageEditor.highlightBluestColumn();
+            case HighlightRandomStep ignored -> imageEditor.highlightRandomColumn();
+            case DeleteStep ignored -> {
+                if (!imageEditor.isImageHighlighted()) throw failure(step, "no column is highlighted");
+                if (width == 1) throw failure(step, "the image is one pixel wide");
+                imageEditor.deleteHighlightedColumn();
+            }
+            case UndoStep ignored -> {
+                if (!imageEditor.isImageEdited()) throw failure(step, "there is no edit to undo");
+                imageEditor.undo();
+            }
+            case CarveStep carveStep -> {
+                if (carveStep.count() >= width) throw failure(step, "the image is only " + width + " pixels wide");
+                imageEditor.removeLowestEnergySeams(carveStep.count());
+            }
+            case SaveStep saveStep -> DiskUtilities.writeToDisk(imageEditor.getImage(), saveStep.filePath());
+        }
+    }
+
+    private static IllegalStateException failure(Step step, String reason) {
+        return new IllegalStateException("line " + step.line() + ": " + reason);
+    }
+
+    public int getStepCount() {return steps.size();}
+
+    /**
+     * returns true if this script writes any image, else false.
+     */
+    public boolean hasSaveSteps() {
+        return steps.stream().anyMatch(step -> step instanceof SaveStep);
+    }
+}
@@ -0,0 +1,384 @@
+package uk.ac.nulondon;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a local http server editing images, with an image editor per session.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the endpoints are:
+ * <br><br>
+ * `POST /sessions`: starts a session editing the image in the request body, responding with the session's id.
+ * <br>
+ * `POST /sessions/{id}/highlight-bluest`, `/highlight-random`, `/delete`, `/undo`, `/carve?count={count}`:
+ * edits the session's image as the `EditScript` step of the same name, responding with the image's size.
+ * <br>
+ * `GET /sessions/{id}/image`: responds with the session's image as a png file.
+ * <br>
+ * `DELETE /sessions/{id}`: ends the session.
+ * <br><br>
+ * a request for an unknown session or endpoint fails with 404, a malformed request with 400, and an edit which
+ * cannot be applied to the session's image, e.g. `delete` without a highlighted column, with 409.
+ * <br><br>
+ * each request is handled on its own virtual thread. the edits of a session are applied one at a time, while
+ * different sessions are edited at once. a session is guarded by a `ReentrantLock` rather than a monitor, as a
+ * virtual thread waiting on a monitor pins its carrier thread. the server only listens on the loopback address.
+ * <br><br>
+ * each session holds its image and undo history in memory, thus their number and size are bounded. a session
+ * which is not used for `idleTimeout` ends, at the latest when idle sessions are next swept, every half
+ * `idleTimeout`, and starting a session fails with 503 while `maxSessionCount` sessions exist. an image with more than `maxPixelCount` pixels is rejected with 413 before it is decoded.
+ */
+public class EditingServer implements AutoCloseable {
+    public static final int MAX_IMAGE_BYTE_COUNT = 64 << 20;
+    public static final int DEFAULT_MAX_SESSION_COUNT = 64;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    public static final long DEFAULT_MAX_PIXEL_COUNT = 1L << 26;
+
+    private static final String SESSIONS_PATH = "/sessions";
+    private static final List<String> EDIT_STEPS = List.of("highlight-bluest", "highlight-random", "delete", "undo");
+
+    /**
+     * an editing session, whose editor is only used while holding `lock`.
+     * `lastUsedTime` is the `System.nanoTime` of the session's latest request.
+     */
+    private record Session(ImageEditor imageEditor, ReentrantLock lock, AtomicLong lastUsedTime) {
+        Session(ImageEditor imageEditor) {
+            this(imageEditor, new ReentrantLock(), new AtomicLong(System.nanoTime()));
+        }
+
+        boolean isIdle(long now, Duration idleTimeout) {
+            return now - lastUsedTime.get() > idleTimeout.toNanos();
+        }
+    }
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    /**
+     * periodically ends idle sessions, so that abandoned sessions end even if no request is received.
+     */
+    private final ScheduledExecutorService sessionSweeper;
+    private final int maxSessionCount;
+    private final Duration idleTimeout;
+    private final long maxPixelCount;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    /**
+     * held while starting a session, so that the number of sessions never exceeds `maxSessionCount`.
+     */
+    private final ReentrantLock sessionStartLock = new ReentrantLock();
+
+    private EditingServer(
+            HttpServer httpServer,
+            ExecutorService executor,
+            ScheduledExecutorService sessionSweeper,
+            int maxSessionCount,
+            Duration idleTimeout,
+            long maxPixelCount
+    ) {
+        this.httpServer = httpServer;
+        this.executor = executor;
+        this.sessionSweeper = sessionSweeper;
+        this.maxSessionCount = maxSessionCount;
+        this.idleTimeout = idleTimeout;
+        this.maxPixelCount = maxPixelCount;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // LIFECYCLE
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * starts a server listening on `port` of the loopback address with the default limits.
+     * if `port` is 0, a free port is chosen, see `getPort`.
+     */
+    public static EditingServer start(int port) throws IOException {
+        return start(port, DEFAULT_MAX_SESSION_COUNT, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_PIXEL_COUNT);
+    }
+
+    /**
+     * starts a server listening on `port` of the loopback address, with at most `maxSessionCount` sessions,
+     * each ending after being idle for `idleTimeout` and editing an image of at most `maxPixelCount` pixels.
+     * if `port` is 0, a free port is chosen, see `getPort`.
+     */
+    public static EditingServer start(
+            int port,
+            int maxSessionCount,
+            Duration idleTimeout,
+            long maxPixelCount
+    ) throws IOException {
+        Objects.requireNonNull(idleTimeout);
+        assert 0 <= port && port <= 0xFFFF;
+        assert maxSessionCount > 0 && maxPixelCount > 0;
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService sessionSweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("session-sweeper").daemon().factory()
+        );
+        EditingServer editingServer = new EditingServer(
+                httpServer, executor, sessionSweeper, maxSessionCount, idleTimeout, maxPixelCount
+        );
+        httpServer.createContext(SESSIONS_PATH, editingServer::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        long sweepPeriod = Math.max(idleTimeout.toNanos() / 2, 1);
+        sessionSweeper.scheduleWithFixedDelay(
+                editingServer::endIdleSessions, sweepPeriod, sweepPeriod, TimeUnit.NANOSECONDS
+        );
+        return editingServer;
+    }
+
+    /**
+     * stops the server, waiting for the requests being handled to finish, and ends every session.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.close();
+        // shutting down cancels the periodic sweep.
+        sessionSweeper.close();
+        sessions.clear();
+    }
+
+    public int getPort() {return httpServer.getAddress().getPort();}
+
+    /**
+     * returns the number of sessions, including idle sessions which have not been ended yet.
+     */
+    public int getSessionCount() {return sessions.size();}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // HANDLING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * a failed request, responded to with `statusCode` and `message`.
+     */
+    private static class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        RequestException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            } catch (RequestException e) {
+                respond(exchange, e.statusCode, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage());
+            } catch (IllegalStateException e) {
+                respond(exchange, 409, e.getMessage());
+            } catch (RuntimeException e) {
+                respond(exchange, 500, "failed to handle the request");
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, RequestException {
+        String method = exchange.getRequestMethod();
+        // e.g. "/sessions/{id}/carve" is split into "", "sessions", "{id}" and "carve".
+        String[] segments = exchange.getRequestURI().getPath().split("/", -1);
+        if (segments.length < 2 || !segments[1].equals(SESSIONS_PATH.substring(1))) throw notFound();
+
+        if (segments.length == 2) {
+            requireMethod(method, "POST");
+            startSession(exchange);
+            return;
+        }
+        String sessionId = segments[2];
+        Session session = sessions.get(sessionId);
+        long now = System.nanoTime();
+        if (session != null && session.isIdle(now, idleTimeout)) {
+            sessions.remove(sessionId, session);
+            session = null;
+        }
+        if (session == null) throw new RequestException(404, "there is no session " + sessionId);
+        session.lastUsedTime().set(now);
+
+        if (segments.length == 3) {
+            requireMethod(method, "DELETE");
+            sessions.remove(sessionId);
+            respond(exchange, 200, "ended session " + sessionId);
+            return;
+        }
+        if (segments.length != 4) throw notFound();
+
+        String endpoint = segments[3];
+        if (endpoint.equals("image")) {
+            requireMethod(method, "GET");
+            fetchImage(exchange, session);
+            return;
+        }
+        requireMethod(method, "POST");
+        if (endpoint.equals("carve")) {
+            edit(exchange, session, "carve " + getQueryParameter(exchange, "count"));
+            return;
+        }
+        if (!EDIT_STEPS.contains(endpoint)) throw notFound();
+
+        edit(exchange, session, endpoint);
+    }
+
+    private void startSession(HttpExchange exchange) throws IOException, RequestException {
+        byte[] bytes;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            bytes = requestBody.readNBytes(MAX_IMAGE_BYTE_COUNT + 1);
+        }
+        if (bytes.length > MAX_IMAGE_BYTE_COUNT) throw new RequestException(413, "the image is too large");
+
+        Image image = decode(bytes);
+        String sessionId = UUID.randomUUID().toString();
+        sessionStartLock.lock();
+        try {
+            endIdleSessions();
+            if (sessions.size() >= maxSessionCount) throw new RequestException(503, "there are too many sessions");
+
+            sessions.put(sessionId, new Session(new ImageEditor(image)));
+        } finally {
+            sessionStartLock.unlock();
+        }
+        respond(exchange, 201, sessionId);
+    }
+
+    /**
+     * returns the image encoded by `bytes`, checking its size before decoding it.
+     */
+    private Image decode(byte[] bytes) throws IOException, RequestException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) throw new RequestException(400, "the request body is not a supported image");
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixelCount = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixelCount > maxPixelCount) {
+                    throw new RequestException(413, "the image has more than " + maxPixelCount + " pixels");
+                }
+                BufferedImage bufferedImage = reader.read(0);
+                return Image.fromBufferedImage(bufferedImage);
+            } catch (IOException | RuntimeException e) {
+                // readers throw runtime exceptions for some malformed images, too.
+                throw new RequestException(400, "the request body is not a valid image");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * ends every session which has been idle for longer than `idleTimeout`.
+     */
+    private void endIdleSessions() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> session.isIdle(now, idleTimeout));
+    }
+
+    /**
+     * applies the edit script step `step` to the session's image, then responds with the image's size.
+     */
+    private static void edit(HttpExchange exchange, Session session, String step) throws IOException {
+        // parsing and running validate the step as for any edit script.
+        EditScript editScript = EditScript.parse(List.of(step));
+        Image image;
+        session.lock().lock();
+        try {
+            editScript.run(session.imageEditor());
+            image = session.imageEditor().getImage();
+        } finally {
+            session.lock().unlock();
+        }
+        respond(exchange, 200, image.getWidth() + "x" + image.getHeight());
+    }
+
+    private static void fetchImage(HttpExchange exchange, Session session) throws IOException {
+        Image image;
+        session.lock().lock();
+        try {
+            image = session.imageEditor().getImage();
+        } finally {
+            session.lock().unlock();
+        }
+        // images are immutable, thus the image is encoded without holding the editor's lock.
+        byte[] body = PngEncoder.FAST.encode(image);
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private static void requireMethod(String method, String expectedMethod) throws RequestException {
+        if (!method.equals(expectedMethod)) throw new RequestException(405, "expected " + expectedMethod);
+    }
+
+    private static RequestException notFound() {
+        return new RequestException(404, "there is no such endpoint");
+    }
+
+    /**
+     * returns the value of the query parameter `name`, or an empty string if it is absent.
+     */
+    private static String getQueryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) return "";
+
+        for (String parameter : query.split("&")) {
+            String[] nameAndValue = parameter.split("=", 2);
+            if (nameAndValue[0].equals(name)) return nameAndValue.length == 2 ? nameAndValue[1] : "";
+        }
+        return "";
+    }
+
+    /**
+     * with the optional argument `<port>`, serves on that port of the loopback address until the jvm is stopped.
+     * by default, a free port is chosen.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length == 1 ? Integer.parseInt(args[0]) : 0;
+        EditingServer editingServer = start(port);
+        System.out.println("serving on http://localhost:" + editingServer.getPort() + SESSIONS_PATH);
+    }
+}
@@ -0,0 +1,499 @@
+package uk.ac.nulondon;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+import static uk.ac.nulondon.Utilities.clamp;
+
+/**
+ * a class representing the energies of the pixels of an image.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the brightnesses of the image's pixels are computed once, then the energies are computed from the brightnesses.
+ * both are stored in primitive planes ordered from the top-most row to the bottom-most row.
+ * the value for the pixel at (x,y) is stored at index `y * stride + x`.
+ * <br><br>
+ * the energy at (x,y) equals `image.getEnergyAt(x, y)`, up to floating point rounding.
+ * <br><br>
+ * an energy map can be updated in place after a column or seam is removed from its image.
+ * only the energies of the pixels adjacent to the removed pixels are recomputed.
+ * <br><br>
+ * the energies of every row can be computed independently, thus an energy map can be computed in parallel
+ * by splitting its rows into bands on a fork/join pool.
+ * <br><br>
+ * if the jvm is started with `--add-modules jdk.incubator.vector`, brightnesses and interior energies are computed
+ * several pixels at a time by `VectorEnergyKernel`. otherwise they are computed one pixel at a time.
+ */
+public class EnergyMap {
+    /**
+     * bands with at most this many pixels are computed sequentially.
+     * splitting smaller bands costs more in task overhead than it saves.
+     */
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 16;
+
+    /**
+     * checked without referencing `VectorEnergyKernel`, as loading it fails when the module is absent.
+     */
+    private static final boolean IS_VECTOR_KERNEL_AVAILABLE = ModuleLayer.boot()
+                                                                         .findModule("jdk.incubator.vector")
+                                                                         .isPresent();
+
+    private final double[] brightnesses;
+    private final double[] energies;
+    private int width;
+    private final int height;
+    /**
+     * the distance in the planes between the starts of two consecutive rows.
+     * `stride` is at least `width`, as removing pixels shrinks `width` but not `stride`.
+     */
+    private final int stride;
+    private final boolean useVectorKernel;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    private EnergyMap(int width, int height, boolean useVectorKernel) {
+        assert width > 0 && height > 0;
+        assert !useVectorKernel || IS_VECTOR_KERNEL_AVAILABLE;
+
+        this.useVectorKernel = useVectorKernel;
+        this.width = width;
+        this.height = height;
+        this.stride = width;
+        this.brightnesses = new double[width * height];
+        this.energies = new double[width * height];
+    }
+
+    /**
+     * returns a new energy map of the given non-null image.
+     */
+    public static EnergyMap of(Image image) {
+        return of(image, IS_VECTOR_KERNEL_AVAILABLE);
+    }
+
+    /**
+     * returns a new energy map of the given non-null image.
+     * `useVectorKernel` may only be true if `isVectorKernelAvailable` returns true.
+     */
+    static EnergyMap of(Image image, boolean useVectorKernel) {
+        Objects.requireNonNull(image);
+
+        EnergyMap energyMap = new EnergyMap(image.getWidth(), image.getHeight(), useVectorKernel);
+        energyMap.computeBrightnessRows(image, 0, energyMap.height);
+        energyMap.computeEnergyRows(0, energyMap.height);
+        return energyMap;
+    }
+
+    /**
+     * returns a new energy map of an image with the given size, none of whose rows are computed.
+     * its rows must be computed band by band from the top by `computeBand`, e.g. as the image is decoded.
+     */
+    static EnergyMap ofSize(int width, int height) {
+        return new EnergyMap(width, height, IS_VECTOR_KERNEL_AVAILABLE);
+    }
+
+    /**
+     * returns a new energy map of the given non-null image, computed in parallel on the common fork/join pool.
+     */
+    public static EnergyMap ofParallel(Image image) {
+        return ofParallel(image, ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * returns a new energy map of the given non-null image, computed on at most `parallelism` threads.
+     * `parallelism` must be positive.
+     */
+    public static EnergyMap ofParallel(Image image, int parallelism) {
+        assert parallelism > 0;
+
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            return ofParallel(image, pool, DEFAULT_SEQUENTIAL_CUTOFF);
+        }
+    }
+
+    /**
+     * returns a new energy map of the given non-null image, computed on `pool`.
+     * the rows are split into bands until each band has at most `sequentialCutoff` pixels.
+     * thus an image with at most `sequentialCutoff` pixels is computed sequentially.
+     */
+    public static EnergyMap ofParallel(Image image, ForkJoinPool pool, int sequentialCutoff) {
+        Objects.requireNonNull(image);
+        Objects.requireNonNull(pool);
+        assert sequentialCutoff > 0;
+
+        EnergyMap energyMap = new EnergyMap(image.getWidth(), image.getHeight(), IS_VECTOR_KERNEL_AVAILABLE);
+        int height = energyMap.height;
+        // a row's energies depend on the brightnesses of the rows above and below it.
+        // thus every brightness must be computed before any energy is.
+        int width = energyMap.width;
+        pool.invoke(new ComputeRowsTask(
+                0, height, width, sequentialCutoff,
+                (fromY, toY) -> energyMap.computeBrightnessRows(image, fromY, toY)
+        ));
+        pool.invoke(new ComputeRowsTask(
+                0, height, width, sequentialCutoff,
+                energyMap::computeEnergyRows
+        ));
+        return energyMap;
+    }
+
+    /**
+     * computes the rows in the range [fromY, toY).
+     */
+    @FunctionalInterface
+    private interface RowsComputer {
+        void computeRows(int fromY, int toY);
+    }
+
+    /**
+     * computes a band of rows of `width` pixels, splitting it in half while it has more than `sequentialCutoff` pixels.
+     * tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class ComputeRowsTask extends RecursiveAction {
+        private final int fromY;
+        private final int toY;
+        private final int width;
+        private final int sequentialCutoff;
+        private final RowsComputer rowsComputer;
+
+        ComputeRowsTask(int fromY, int toY, int width, int sequentialCutoff, RowsComputer rowsComputer) {
+            this.fromY = fromY;
+            this.toY = toY;
+            this.width = width;
+            this.sequentialCutoff = sequentialCutoff;
+            this.rowsComputer = rowsComputer;
+        }
+
+        @Override
+        protected void compute() {
+            int rowCount = toY - fromY;
+            boolean isBandSmall = (long) rowCount * width <= sequentialCutoff;
+            if (isBandSmall || rowCount == 1) {
+                rowsComputer.computeRows(fromY, toY);
+                return;
+            }
+            int middleY = fromY + rowCount / 2;
+            invokeAll(
+                    new ComputeRowsTask(fromY, middleY, width, sequentialCutoff, rowsComputer),
+                    new ComputeRowsTask(middleY, toY, width, sequentialCutoff, rowsComputer)
+            );
+        }
+    }
+
+    /**
+     * returns true if energies can be computed using the vector api, else false.
+     */
+    public static boolean isVectorKernelAvailable() {return IS_VECTOR_KERNEL_AVAILABLE;}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // COMPUTATION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the brightness of the given packed rgb value.
+     * i.e. returns the average of its red, green and blue components.
+     */
+    static double getBrightnessOf(int rgb) {
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+        return (red + green + blue) / 3.0;
+    }
+
+    /**
+     * writes the energies of the pixels of a row into `energies`, given the brightnesses of the rows above,
+     * of and below it. for the top-most and bottom-most rows, the row itself is given in place of the missing row.
+     * <br><br>
+     * this computes the same energies as an energy map, without storing more than three rows of brightnesses.
+     */
+    static void computeEnergyRow(double[] top, double[] middle, double[] bottom, int width, double[] energies) {
+        for (int x = 0; x < width; x++) {
+            int left = clamp(x - 1, 0, width - 1);
+            int right = clamp(x + 1, 0, width - 1);
+            double leftColumnEnergy = top[left] + 2 * middle[left] + bottom[left];
+            double rightColumnEnergy = top[right] + 2 * middle[right] + bottom[right];
+            double bottomRowEnergy = bottom[left] + 2 * bottom[x] + bottom[right];
+            double topRowEnergy = top[left] + 2 * top[x] + top[right];
+            double horizontalEnergy = leftColumnEnergy - rightColumnEnergy;
+            double verticalEnergy = bottomRowEnergy - topRowEnergy;
+            energies[x] = Math.sqrt(horizontalEnergy * horizontalEnergy + verticalEnergy * verticalEnergy);
+        }
+    }
+
+    /**
+     * computes the brightnesses of the rows in the range [fromY, toY) from `rows`, where `rows[y]` holds the packed
+     * rgb values of the y'th row, then computes every energy that only depends on the brightnesses computed so far.
+     * i.e. the energies of a band's last row are computed with the next band, as they depend on its first row.
+     * <br><br>
+     * this energy map must have been created by `ofSize`, and its bands must be computed in order from the top.
+     * i.e. `fromY` must equal the previous band's `toY`, or 0 for the first band.
+     */
+    void computeBand(int[][] rows, int fromY, int toY) {
+        Objects.requireNonNull(rows);
+        assert 0 <= fromY && fromY < toY && toY <= height;
+
+        computeBrightnessRowsOfRows(y -> rows[y], fromY, toY);
+        int toEnergyY = toY == height ? height : toY - 1;
+        computeEnergyRows(Math.max(fromY - 1, 0), toEnergyY);
+    }
+
+    /**
+     * computes the brightnesses of the rows in the range [fromY, toY).
+     */
+    private void computeBrightnessRows(Image image, int fromY, int toY) {
+        if (image.isTransposed()) {
+            // rows are contiguous, thus each row's brightnesses are computed straight into the plane.
+            computeBrightnessRowsOfRows(image::getRowRGB, fromY, toY);
+            return;
+        }
+        if (useVectorKernel) {
+            // columns are contiguous but rows are not,
+            // thus each column's brightnesses are computed contiguously, then copied into the plane.
+            double[] columnBrightnesses = new double[toY - fromY];
+            for (int x = 0; x < width; x++) {
+                int[] column = image.getColumnRGB(x);
+                VectorEnergyKernel.computeBrightnesses(column, fromY, toY, columnBrightnesses);
+                for (int y = fromY; y < toY; y++) {
+                    brightnesses[y * stride + x] = columnBrightnesses[y - fromY];
+                }
+            }
+            return;
+        }
+        for (int x = 0; x < width; x++) {
+            int[] column = image.getColumnRGB(x);
+            for (int y = fromY; y < toY; y++) {
+                brightnesses[y * stride + x] = getBrightnessOf(column[y]);
+            }
+        }
+    }
+
+    /**
+     * computes the brightnesses of the rows in the range [fromY, toY), where `rowOf` returns the packed rgb values of
+     * the y'th row given y.
+     */
+    private void computeBrightnessRowsOfRows(IntFunction<int[]> rowOf, int fromY, int toY) {
+        double[] rowBrightnesses = useVectorKernel ? new double[width] : null;
+        for (int y = fromY; y < toY; y++) {
+            int[] row = rowOf.apply(y);
+            int start = y * stride;
+            if (useVectorKernel) {
+                VectorEnergyKernel.computeBrightnesses(row, 0, width, rowBrightnesses);
+                System.arraycopy(rowBrightnesses, 0, brightnesses, start, width);
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                brightnesses[start + x] = getBrightnessOf(row[x]);
+            }
+        }
+    }
+
+    /**
+     * computes the energies of the rows in the range [fromY, toY).
+     * the brightnesses of the rows in the range [fromY - 1, toY + 1) must already be computed.
+     */
+    private void computeEnergyRows(int fromY, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            computeEnergies(y, 0, width);
+        }
+    }
+
+    /**
+     * computes the energies of the pixels in the y'th row whose x is in the range [fromX, toX).
+     * the brightnesses of the rows in the range [y - 1, y + 1] must already be computed.
+     */
+    private void computeEnergies(int y, int fromX, int toX) {
+        boolean isBorderRow = y == 0 || y == height - 1;
+        if (isBorderRow) {
+            computeBorderEnergies(y, fromX, toX);
+            return;
+        }
+        int fromInteriorX = Math.max(fromX, 1);
+        int toInteriorX = Math.min(toX, width - 1);
+        if (fromInteriorX >= toInteriorX) {
+            computeBorderEnergies(y, fromX, toX);
+            return;
+        }
+        computeBorderEnergies(y, fromX, fromInteriorX);
+        computeInteriorEnergies(y, fromInteriorX, toInteriorX);
+        computeBorderEnergies(y, toInteriorX, toX);
+    }
+
+    /**
+     * computes the energies of the pixels in the y'th row whose x is in the range [fromX, toX).
+     * the pixels and all of their neighbours must exist, i.e. the pixels must not be on a border.
+     */
+    private void computeInteriorEnergies(int y, int fromX, int toX) {
+        // there are no out of bounds neighbours, thus no clamping and no branching is needed.
+        double[] b = brightnesses;
+        int top = (y - 1) * stride;
+        int middle = y * stride;
+        int bottom = (y + 1) * stride;
+        if (useVectorKernel) {
+            VectorEnergyKernel.computeInteriorEnergies(b, energies, top, middle, bottom, fromX, toX);
+            return;
+        }
+        for (int x = fromX; x < toX; x++) {
+            double leftColumnEnergy = b[top + x - 1] + 2 * b[middle + x - 1] + b[bottom + x - 1];
+            double rightColumnEnergy = b[top + x + 1] + 2 * b[middle + x + 1] + b[bottom + x + 1];
+            double bottomRowEnergy = b[bottom + x - 1] + 2 * b[bottom + x] + b[bottom + x + 1];
+            double topRowEnergy = b[top + x - 1] + 2 * b[top + x] + b[top + x + 1];
+            double horizontalEnergy = leftColumnEnergy - rightColumnEnergy;
+            double verticalEnergy = bottomRowEnergy - topRowEnergy;
+            energies[middle + x] = Math.sqrt(horizontalEnergy * horizontalEnergy + verticalEnergy * verticalEnergy);
+        }
+    }
+
+    /**
+     * computes the energies of the pixels in the y'th row whose x is in the range [fromX, toX).
+     * out of bounds neighbours are clamped to the nearest pixel, as in `Image.getBrightnessAt`.
+     */
+    private void computeBorderEnergies(int y, int fromX, int toX) {
+        int top = clamp(y - 1, 0, height - 1) * stride;
+        int middle = y * stride;
+        int bottom = clamp(y + 1, 0, height - 1) * stride;
+        for (int x = fromX; x < toX; x++) {
+            int left = clamp(x - 1, 0, width - 1);
+            int right = clamp(x + 1, 0, width - 1);
+            double[] b = brightnesses;
+            double leftColumnEnergy = b[top + left] + 2 * b[middle + left] + b[bottom + left];
+            double rightColumnEnergy = b[top + right] + 2 * b[middle + right] + b[bottom + right];
+            double bottomRowEnergy = b[bottom + left] + 2 * b[bottom + x] + b[bottom + right];
+            double topRowEnergy = b[top + left] + 2 * b[top + x] + b[top + right];
+            double horizontalEnergy = leftColumnEnergy - rightColumnEnergy;
+            double verticalEnergy = bottomRowEnergy - topRowEnergy;
+            energies[middle + x] = Math.sqrt(horizontalEnergy * horizontalEnergy + verticalEnergy * verticalEnergy);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // REMOVAL
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * updates this energy map to be the energy map of its image without the x'th column.
+     * x must be in the range [0, width).
+     */
+    public void removeColumn(int x) {
+        assert existsColumnAt(x);
+
+        int[] seam = new int[height];
+        Arrays.fill(seam, x);
+        removeSeam(seam);
+    }
+
+    /**
+     * updates this energy map to be the energy map of its image without the vertical seam `seam`.
+     * the y'th element of `seam` is the x of the pixel removed from the y'th row.
+     * the length of `seam` must equal the height, and every x must be in the range [0, width).
+     */
+    public void removeSeam(int[] seam) {
+        Objects.requireNonNull(seam);
+        assert seam.length == height;
+        assert width > 1;
+
+        int newWidth = width - 1;
+        for (int y = 0; y < height; y++) {
+            assert existsColumnAt(seam[y]);
+
+            int rowStart = y * stride;
+            int x = seam[y];
+            System.arraycopy(brightnesses, rowStart + x + 1, brightnesses, rowStart + x, newWidth - x);
+            System.arraycopy(energies, rowStart + x + 1, energies, rowStart + x, newWidth - x);
+        }
+        width = newWidth;
+
+        // a pixel's energy depends only on its neighbours' brightnesses.
+        // thus a pixel's energy changes only if one of its neighbours came from the other side of the seam.
+        // in the y'th row, such pixels lie within one pixel of the seam in the rows [y - 1, y + 1].
+        for (int y = 0; y < height; y++) {
+            int topX = seam[Math.max(y - 1, 0)];
+            int bottomX = seam[Math.min(y + 1, height - 1)];
+            int minX = Math.min(seam[y], Math.min(topX, bottomX));
+            int maxX = Math.max(seam[y], Math.max(topX, bottomX));
+            int fromX = Math.max(minX - 1, 0);
+            int toX = Math.min(maxX + 1, width);
+            computeEnergies(y, fromX, toX);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ACCESS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the energy of the pixel at (x,y).
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    public double getEnergyAt(int x, int y) {
+        assert existsColumnAt(x) && existsRowAt(y);
+
+        return energies[y * stride + x];
+    }
+
+    /**
+     * returns the brightness of the pixel at (x,y).
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    public double getBrightnessAt(int x, int y) {
+        assert existsColumnAt(x) && existsRowAt(y);
+
+        return brightnesses[y * stride + x];
+    }
+
+    /**
+     * returns a copy of the energies of the y'th row.
+     * y must be in the range [0, height).
+     */
+    public double[] getEnergyRow(int y) {
+        assert existsRowAt(y);
+
+        double[] energyRow = new double[width];
+        System.arraycopy(energies, y * stride, energyRow, 0, width);
+        return energyRow;
+    }
+
+    /**
+     * returns the sum of the energies of the x'th column.
+     * x must be in the range [0, width).
+     */
+    public double getColumnEnergy(int x) {
+        assert existsColumnAt(x);
+
+        double columnEnergy = 0;
+        for (int y = 0; y < height; y++) {
+            columnEnergy += energies[y * stride + x];
+        }
+        return columnEnergy;
+    }
+
+    /**
+     * returns the energy plane, in which the energy of the pixel at (x,y) is at index `y * getStride() + x`.
+     * the returned array is shared with this energy map and must not be mutated.
+     */
+    double[] getEnergies() {return energies;}
+
+    /**
+     * returns the distance in the energy plane between the starts of two consecutive rows.
+     */
+    int getStride() {return stride;}
+
+    public int getWidth() {return width;}
+
+    public int getHeight() {return height;}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // EXISTENCE
+    ///////////////////////////////////////////////////////////////////////////
+
+    public boolean existsColumnAt(int x) {return 0 <= x && x < width;}
+
+    public boolean existsRowAt(int y) {return 0 <= y && y < height;}
+}
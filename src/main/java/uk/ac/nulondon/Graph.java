@@ -0,0 +1,28 @@
+package uk.ac.nulondon;
+
+/**
+ * a directed graph whose nodes are identified by ids in the range [0, nodeCount).
+ * <br><br>
+ * the edges leaving a node are numbered from 0, so that they can be visited without allocating.
+ * a graph may store its edges (e.g. `CsrGraph`) or compute them on demand (e.g. `PixelGridGraph`).
+ */
+public interface Graph {
+    int getNodeCount();
+
+    /**
+     * returns the number of edges leaving the node `id`.
+     */
+    int getEdgeCount(int id);
+
+    /**
+     * returns the id of the node the i'th edge leaving the node `id` leads to.
+     * i must be in the range [0, getEdgeCount(id)).
+     */
+    int getTarget(int id, int i);
+
+    /**
+     * returns the weight of the i'th edge leaving the node `id`.
+     * i must be in the range [0, getEdgeCount(id)).
+     */
+    double getWeight(int id, int i);
+}
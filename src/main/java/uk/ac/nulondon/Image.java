@@ -3,10 +3,10 @@ package uk.ac.nulondon;
 import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -31,35 +31,92 @@ import static uk.ac.nulondon.Utilities.clamp;
  * an image can be represented by a list of list representations of columns ordered from left-most column to right-most column.
  * <br><br>
  * an image can be represented by a list of list representations of rows ordered from top-most row to bottom-most row.
+ * <br><br>
+ * internally, pixels are stored as packed rgb integers rather than colors.
+ * the color based methods are kept for convenience and allocate a color per pixel read.
+ * <br><br>
+ * pixels are stored column by column, unless the image is a transpose (see `transposed`),
+ * in which case they are stored row by row. operations on whichever of columns or rows is stored
+ * share the untouched arrays between images, whereas operations on the other copy every array.
  */
-public class Image {
+public class Image implements CarvableImage<Image> {
     /**
-     * `bufferedImage` is never null nor mutated.
+     * the packed rgb values of the pixels, as one array per line.
+     * if this image is not transposed, the lines are the columns ordered from the left-most column to the
+     * right-most column, and the pixel at (x,y) is stored at `lines[x][y]`.
+     * if this image is transposed, the lines are the rows ordered from the top-most row to the bottom-most row,
+     * and the pixel at (x,y) is stored at `lines[y][x]`.
+     * <br><br>
+     * line arrays are never mutated, thus an image derived from this image (e.g. by removing a column)
+     * shares every line array it did not change rather than copying it.
      */
-    private final BufferedImage bufferedImage;
+    private final int[][] lines;
+    private final int lineLength;
+    private final boolean isTransposed;
 
     ///////////////////////////////////////////////////////////////////////////
     // CONSTRUCTION
     ///////////////////////////////////////////////////////////////////////////
 
     /**
-     * constructs a new image from the given non-null buffered image.
+     * constructs a new image from the given non-null line arrays, each of length `lineLength`.
+     * neither `lines` nor its line arrays may be mutated after being passed to this constructor.
      */
-    private Image(BufferedImage bufferedImage) {
-        Objects.requireNonNull(bufferedImage);
-        this.bufferedImage = bufferedImage;
+    private Image(int[][] lines, int lineLength, boolean isTransposed) {
+        Objects.requireNonNull(lines);
+        assert lines.length > 0 && lineLength > 0;
+
+        this.lines = lines;
+        this.lineLength = lineLength;
+        this.isTransposed = isTransposed;
+    }
+
+    /**
+     * constructs a new image from the given non-null column arrays.
+     * neither `columns` nor its column arrays may be mutated after being passed to this constructor.
+     */
+    private Image(int[][] columns, int height) {
+        this(columns, height, false);
     }
 
     /**
      * returns a new image representing the image located at `filePath`.
      * if no file exists at `filePath`, an exception is thrown.
      * if a file exists at `filePath` but the file is not an image, an exception is thrown.
+     * files with the extension `RawImageFile.EXTENSION` are read as raw image files, without decoding,
+     * and files with the extension `TiledImage.EXTENSION` are read as tile files.
      */
     public static Image fromFilePath(String filePath) throws IOException {
         assert fileExists(filePath);
 
+        if (filePath.endsWith(RawImageFile.EXTENSION)) return RawImageFile.read(Path.of(filePath));
+        if (filePath.endsWith(TiledImage.EXTENSION)) {
+            try (TiledImage tiledImage = TiledImage.open(Path.of(filePath))) {
+                return tiledImage.toImage();
+            }
+        }
+
         File file = new File(filePath);
-        return new Image(ImageIO.read(file));
+        return fromBufferedImage(ImageIO.read(file));
+    }
+
+    /**
+     * returns a new image representing the given non-null buffered image.
+     */
+    public static Image fromBufferedImage(BufferedImage bufferedImage) {
+        Objects.requireNonNull(bufferedImage);
+
+        int width = bufferedImage.getWidth();
+        int height = bufferedImage.getHeight();
+        int[][] columns = new int[width][height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            bufferedImage.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                columns[x][y] = toOpaque(row[x]);
+            }
+        }
+        return new Image(columns, height);
     }
 
     /**
@@ -78,25 +135,97 @@ public class Image {
         assert areColumnsSameSize;
         assert height != 0;
 
-        BufferedImage bufferedImage = new BufferedImage(width, height, TYPE_INT_RGB);
+        int[][] columnArrays = new int[width][];
         for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color color = columns.get(x).get(y);
-                int rgb = color.getRGB();
-                bufferedImage.setRGB(x, y, rgb);
-            }
+            columnArrays[x] = toLineArray(columns.get(x));
         }
-        return new Image(bufferedImage);
+        return new Image(columnArrays, height);
     }
 
     /**
      * returns a new image representing the image described by the list of list representations of rows.
      */
     public static Image fromRows(List<List<Color>> rows) {
-        List<List<Color>> columns = transpose(rows);
-        return fromColumns(columns);
+        Objects.requireNonNull(rows);
+        assert !rows.isEmpty();
+
+        int width = rows.getFirst().size();
+        int height = rows.size();
+        boolean areRowsSameSize = rows
+                .stream()
+                .allMatch(row -> row.size() == width);
+
+        assert areRowsSameSize;
+        assert width != 0;
+
+        int[][] columns = new int[width][height];
+        for (int y = 0; y < height; y++) {
+            List<Color> row = rows.get(y);
+            for (int x = 0; x < width; x++) {
+                Color color = row.get(x);
+                columns[x][y] = toOpaque(color.getRGB());
+            }
+        }
+        return new Image(columns, height);
+    }
+
+    /**
+     * returns a new image whose columns are the given non-null arrays of packed rgb values, which must all have
+     * the same non-zero length. the new image stores its columns, thus no pixels are copied.
+     * neither `columns` nor its column arrays may be mutated after being passed to this method.
+     */
+    static Image fromColumnRGBs(int[][] columns) {
+        Objects.requireNonNull(columns);
+        assert columns.length > 0;
+        assert Arrays.stream(columns).allMatch(column -> column.length == columns[0].length);
+
+        return new Image(columns, columns[0].length, false);
+    }
+
+    /**
+     * returns a new image whose rows are the given non-null arrays of packed rgb values, which must all have
+     * the same non-zero length. the new image stores its rows, thus no pixels are copied.
+     * neither `rows` nor its row arrays may be mutated after being passed to this method.
+     */
+    static Image fromRowRGBs(int[][] rows) {
+        Objects.requireNonNull(rows);
+        assert rows.length > 0;
+        assert Arrays.stream(rows).allMatch(row -> row.length == rows[0].length);
+
+        return new Image(rows, rows[0].length, true);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ORIENTATION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the transpose of this image.
+     * i.e. returns an image whose pixel at (x,y) is this image's pixel at (y,x),
+     * whose columns are this image's rows and whose rows are this image's columns.
+     * <br><br>
+     * the transpose shares every line array with this image, thus this takes O(1) time.
+     * `image.transposed().transposed()` equals `image`.
+     * <br><br>
+     * row operations can be performed as column operations on the transpose, e.g. a horizontal seam of an image
+     * is a vertical seam of its transpose:
+     * <pre>
+     * Image transpose = image.transposed();
+     * int[] seam = SeamFinder.findVerticalSeam(transpose.getEnergyMap());
+     * Image carved = transpose.removeSeam(seam).transposed();
+     * </pre>
+     */
+    public Image transposed() {
+        return new Image(lines, lineLength, !isTransposed);
     }
 
+    /**
+     * returns true if the lines of this image are its rows, else false.
+     * if true, rows are contiguous in memory and row operations are cheaper than column operations.
+     * if false, it is the other way around.
+     */
+    boolean isTransposed() {return isTransposed;}
+
     ///////////////////////////////////////////////////////////////////////////
     // COLUMNS
     ///////////////////////////////////////////////////////////////////////////
@@ -127,13 +256,36 @@ public class Image {
     /**
      * returns a new image without the x'th column.
      * x must be in the range [0, width).
+     * unless this image is transposed, the new image shares its column arrays with this image,
+     * thus no pixels are copied.
      */
+    @Override
     public Image removeColumn(int x) {
         assert existsColumnAt(x);
+        assert getWidth() > 1;
+
+        return isTransposed ? withElementRemoved(x) : withLineRemoved(x);
+    }
+
+    /**
+     * returns a new image without the columns whose indices are in `xs`.
+     * `xs` must be sorted in ascending order without duplicates, every x must be in the range [0, width),
+     * and at least one column must remain.
+     * <br><br>
+     * the columns are removed in a single pass, rather than building an image per removed column.
+     * unless this image is transposed, the new image shares its column arrays with this image.
+     */
+    public Image removeColumns(int[] xs) {
+        Objects.requireNonNull(xs);
+        assert xs.length < getWidth();
+        assert isSortedAndDistinct(xs);
+        assert xs.length == 0 || (existsColumnAt(xs[0]) && existsColumnAt(xs[xs.length - 1]));
+
+        if (!isTransposed) return withLinesRemoved(xs);
 
-        List<List<Color>> columns = getColumns();
-        columns.remove(x);
-        return fromColumns(columns);
+        int[][] removedXs = new int[lines.length][];
+        Arrays.fill(removedXs, xs);
+        return withElementsPerLineRemoved(removedXs);
     }
 
     /**
@@ -146,9 +298,260 @@ public class Image {
         assert existsColumnAt(x) || x == getWidth();
         assert column.size() == getHeight();
 
-        List<List<Color>> columns = getColumns();
-        columns.add(x, column);
-        return fromColumns(columns);
+        int[] columnArray = toLineArray(column);
+        return isTransposed ? withElementInserted(x, columnArray) : withLineInserted(x, columnArray);
+    }
+
+    /**
+     * returns the packed rgb values of the x'th column ordered from the top-most pixel to the bottom-most pixel.
+     * the returned array may be shared with this image and must not be mutated.
+     * x must be in the range [0, width).
+     */
+    int[] getColumnRGB(int x) {
+        assert existsColumnAt(x);
+
+        return isTransposed ? getElements(x) : lines[x];
+    }
+
+    /**
+     * returns a new image with the packed rgb values `column` inserted before the x'th column.
+     * `column` may be shared with the new image and must not be mutated afterwards.
+     * x must be in the range [0, width].
+     * the length of `column` must equal this image's height.
+     */
+    Image addColumnRGB(int x, int[] column) {
+        assert existsColumnAt(x) || x == getWidth();
+        assert column.length == getHeight();
+
+        return isTransposed ? withElementInserted(x, column) : withLineInserted(x, column);
+    }
+
+    /**
+     * returns a new image whose x'th column is the packed rgb values `column`.
+     * `column` may be shared with the new image and must not be mutated afterwards.
+     * x must be in the range [0, width).
+     * the length of `column` must equal this image's height.
+     */
+    Image setColumnRGB(int x, int[] column) {
+        assert existsColumnAt(x);
+        assert column.length == getHeight();
+
+        return isTransposed ? withElementsSet(x, column) : withLineSet(x, column);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // SEAMS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns a new image without the pixels of the vertical seam `seam`.
+     * the y'th element of `seam` is the x of the pixel removed from the y'th row.
+     * the length of `seam` must equal this image's height, and every x must be in the range [0, width).
+     * <br><br>
+     * unless this image is transposed, columns left of the seam and columns right of the seam are shared with
+     * this image, and only the columns the seam passes through are copied.
+     */
+    @Override
+    public Image removeSeam(int[] seam) {
+        Objects.requireNonNull(seam);
+        assert seam.length == getHeight();
+        assert getWidth() > 1;
+
+        return isTransposed ? withElementPerLineRemoved(seam) : withSeamAcrossLinesRemoved(seam);
+    }
+
+    /**
+     * returns the packed rgb values of the pixels of the vertical seam `seam`, ordered from top to bottom.
+     * the length of `seam` must equal this image's height, and every x must be in the range [0, width).
+     */
+    public int[] getSeamRGB(int[] seam) {
+        Objects.requireNonNull(seam);
+        assert seam.length == getHeight();
+
+        int height = getHeight();
+        int[] seamRGB = new int[height];
+        for (int y = 0; y < height; y++) {
+            seamRGB[y] = getRGBAt(seam[y], y);
+        }
+        return seamRGB;
+    }
+
+    /**
+     * returns a new image without the pixels of every vertical seam in `seams`.
+     * every seam is given in this image's coordinates, i.e. `seams[i][y]` is the x in this image of the pixel
+     * removed from the y'th row by the i'th seam. in each row, the seams' x's must be distinct.
+     * every seam's length must equal this image's height, and at least one column must remain.
+     * <br><br>
+     * the seams are removed in a single pass, rather than building an image per removed seam.
+     * e.g. `SeamFinder.findVerticalSeams` returns seams in this form.
+     */
+    public Image removeSeams(int[][] seams) {
+        Objects.requireNonNull(seams);
+        assert seams.length < getWidth();
+
+        int[][] sortedXs = getSortedXsPerRow(seams);
+        return isTransposed ? withElementsPerLineRemoved(sortedXs) : withSeamsAcrossLinesRemoved(sortedXs);
+    }
+
+    /**
+     * returns the packed rgb values of the pixels of every vertical seam in `seams`.
+     * the i'th element of the returned array is `getSeamRGB(seams[i])`.
+     */
+    public int[][] getSeamRGBs(int[][] seams) {
+        Objects.requireNonNull(seams);
+
+        int[][] seamRGBs = new int[seams.length][];
+        for (int i = 0; i < seams.length; i++) {
+            seamRGBs[i] = getSeamRGB(seams[i]);
+        }
+        return seamRGBs;
+    }
+
+    /**
+     * returns a new image with the packed rgb values `seamRGBs[i]` inserted as the vertical seam `seams[i]`,
+     * for every i. every seam is given in the new image's coordinates,
+     * i.e. the new image's pixel at (`seams[i][y]`, y) is `seamRGBs[i][y]`. in each row, the seams' x's must be
+     * distinct and in the range [0, width + seams.length).
+     * <br><br>
+     * the seams are inserted in a single pass. this undoes `removeSeams`:
+     * `image.removeSeams(seams).addSeams(seams, image.getSeamRGBs(seams))` equals `image`.
+     */
+    public Image addSeams(int[][] seams, int[][] seamRGBs) {
+        Objects.requireNonNull(seams);
+        Objects.requireNonNull(seamRGBs);
+        assert seams.length == seamRGBs.length;
+
+        int height = getHeight();
+        int[][] sortedXs = getSortedXsPerRow(seams);
+        int[][] sortedRGBs = new int[height][seams.length];
+        long[] keys = new long[seams.length];
+        for (int y = 0; y < height; y++) {
+            // each key holds the x in its high half and the seam's index in its low half,
+            // thus sorting the keys orders the seams' rgb values by x.
+            for (int i = 0; i < seams.length; i++) {
+                keys[i] = ((long) seams[i][y] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int k = 0; k < seams.length; k++) {
+                sortedRGBs[y][k] = seamRGBs[(int) keys[k]][y];
+            }
+        }
+        return isTransposed
+                ? withElementsPerLineInserted(sortedXs, sortedRGBs)
+                : withSeamsAcrossLinesInserted(sortedXs, sortedRGBs);
+    }
+
+    /**
+     * returns a new image enlarged by duplicating the pixels of every vertical seam in `seams`.
+     * every seam is given in this image's coordinates, and in each row, the seams' x's must be distinct.
+     * every seam's length must equal this image's height.
+     * <br><br>
+     * each seam pixel is followed by a new pixel whose color is the average of the seam pixel's color and the color
+     * of the pixel to its right, or the seam pixel's color if it is in the right-most column.
+     * the new pixels are at the positions returned by `getDuplicateSeams`, and are inserted in a single pass.
+     * <br><br>
+     * duplicating the seams that would be removed first, e.g. those returned by `SeamFinder.findVerticalSeams`,
+     * enlarges the image where its content is least noticeable.
+     */
+    public Image duplicateSeams(int[][] seams) {
+        Objects.requireNonNull(seams);
+
+        int width = getWidth();
+        int height = getHeight();
+        int[][] duplicateSeams = getDuplicateSeams(seams);
+        int[][] duplicateRGBs = new int[seams.length][height];
+        for (int i = 0; i < seams.length; i++) {
+            for (int y = 0; y < height; y++) {
+                int x = seams[i][y];
+                assert existsColumnAt(x);
+                int rightX = Math.min(x + 1, width - 1);
+                duplicateRGBs[i][y] = getAverageRGB(getRGBAt(x, y), getRGBAt(rightX, y));
+            }
+        }
+        return addSeams(duplicateSeams, duplicateRGBs);
+    }
+
+    /**
+     * returns the positions of the pixels inserted by `duplicateSeams(seams)`, in the enlarged image's coordinates.
+     * i.e. `getDuplicateSeams(seams)[i][y]` is the x in the enlarged image of the duplicate of the i'th seam's pixel
+     * in the y'th row. thus `image.duplicateSeams(seams).removeSeams(getDuplicateSeams(seams))` equals `image`.
+     */
+    public static int[][] getDuplicateSeams(int[][] seams) {
+        Objects.requireNonNull(seams);
+        if (seams.length == 0) return new int[0][];
+
+        int height = seams[0].length;
+        int[][] duplicateSeams = new int[seams.length][height];
+        long[] keys = new long[seams.length];
+        for (int y = 0; y < height; y++) {
+            // each key holds the x in its high half and the seam's index in its low half,
+            // thus sorting the keys ranks the seams by x.
+            for (int i = 0; i < seams.length; i++) {
+                keys[i] = ((long) seams[i][y] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int rank = 0; rank < seams.length; rank++) {
+                int i = (int) keys[rank];
+                // the pixel is shifted right by the duplicates of the `rank` seam pixels left of it,
+                // and its duplicate follows it.
+                duplicateSeams[i][y] = seams[i][y] + rank + 1;
+            }
+        }
+        return duplicateSeams;
+    }
+
+    /**
+     * returns the packed rgb value whose red, green and blue components are the averages of those of `rgb1` and
+     * `rgb2`, rounded down.
+     */
+    private static int getAverageRGB(int rgb1, int rgb2) {
+        int red = (((rgb1 >> 16) & 0xFF) + ((rgb2 >> 16) & 0xFF)) / 2;
+        int green = (((rgb1 >> 8) & 0xFF) + ((rgb2 >> 8) & 0xFF)) / 2;
+        int blue = ((rgb1 & 0xFF) + (rgb2 & 0xFF)) / 2;
+        return toOpaque((red << 16) | (green << 8) | blue);
+    }
+
+    /**
+     * returns, for every row, the x's of the seams' pixels in that row sorted in ascending order.
+     */
+    private int[][] getSortedXsPerRow(int[][] seams) {
+        int height = getHeight();
+        int[][] sortedXs = new int[height][seams.length];
+        for (int i = 0; i < seams.length; i++) {
+            Objects.requireNonNull(seams[i]);
+            assert seams[i].length == height;
+
+            for (int y = 0; y < height; y++) {
+                sortedXs[y][i] = seams[i][y];
+            }
+        }
+        for (int[] xs : sortedXs) {
+            Arrays.sort(xs);
+            assert isSortedAndDistinct(xs);
+        }
+        return sortedXs;
+    }
+
+    private static boolean isSortedAndDistinct(int[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] >= values[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * returns a new image with the packed rgb values `seamRGB` inserted as the vertical seam `seam`.
+     * i.e. in the y'th row, `seamRGB[y]` is inserted before the pixel at x = `seam[y]`.
+     * every x of `seam` must be in the range [0, width], and both arrays' lengths must equal this image's height.
+     * <br><br>
+     * this undoes `removeSeam`: `image.removeSeam(seam).addSeam(seam, image.getSeamRGB(seam))` equals `image`.
+     */
+    public Image addSeam(int[] seam, int[] seamRGB) {
+        Objects.requireNonNull(seam);
+        Objects.requireNonNull(seamRGB);
+        assert seam.length == getHeight() && seamRGB.length == getHeight();
+
+        return isTransposed ? withElementPerLineInserted(seam, seamRGB) : withSeamAcrossLinesInserted(seam, seamRGB);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -181,13 +584,13 @@ public class Image {
     /**
      * returns a new image without the y'th row.
      * y must be in the range [0, height)
+     * if this image is transposed, the new image shares its row arrays with this image, thus no pixels are copied.
      */
     public Image removeRow(int y) {
         assert existsRowAt(y);
+        assert getHeight() > 1;
 
-        List<List<Color>> rows = getRows();
-        rows.remove(y);
-        return fromRows(rows);
+        return isTransposed ? withLineRemoved(y) : withElementRemoved(y);
     }
 
     /**
@@ -200,9 +603,344 @@ public class Image {
         assert existsRowAt(y) || y == getHeight();
         assert row.size() == getWidth();
 
-        List<List<Color>> rows = getRows();
-        rows.add(y, row);
-        return fromRows(rows);
+        int[] rowArray = toLineArray(row);
+        return isTransposed ? withLineInserted(y, rowArray) : withElementInserted(y, rowArray);
+    }
+
+    @Override
+    public void getRowRGB(int y, int[] row) {
+        assert existsRowAt(y);
+        assert row.length >= getWidth();
+
+        if (isTransposed) {
+            System.arraycopy(lines[y], 0, row, 0, lineLength);
+            return;
+        }
+        for (int x = 0; x < lines.length; x++) {
+            row[x] = lines[x][y];
+        }
+    }
+
+    /**
+     * returns the packed rgb values of the y'th row ordered from the left-most pixel to the right-most pixel.
+     * the returned array may be shared with this image and must not be mutated.
+     * y must be in the range [0, height).
+     */
+    int[] getRowRGB(int y) {
+        assert existsRowAt(y);
+
+        return isTransposed ? lines[y] : getElements(y);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // LINES
+    ///////////////////////////////////////////////////////////////////////////
+
+    // the methods below operate on the stored lines, regardless of whether the lines are columns or rows.
+    // the i'th line is `lines[i]`, and its j'th element is `lines[i][j]`.
+    // operations on whole lines share the other lines, whereas operations across lines copy every line they touch.
+
+    private Image withLineRemoved(int i) {
+        int newLineCount = lines.length - 1;
+        int[][] newLines = new int[newLineCount][];
+        System.arraycopy(lines, 0, newLines, 0, i);
+        System.arraycopy(lines, i + 1, newLines, i, newLineCount - i);
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    private Image withLineInserted(int i, int[] line) {
+        int lineCount = lines.length;
+        int[][] newLines = new int[lineCount + 1][];
+        System.arraycopy(lines, 0, newLines, 0, i);
+        newLines[i] = line;
+        System.arraycopy(lines, i, newLines, i + 1, lineCount - i);
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    private Image withLineSet(int i, int[] line) {
+        int[][] newLines = lines.clone();
+        newLines[i] = line;
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * the lines whose indices are in the sorted array `is` are removed.
+     */
+    private Image withLinesRemoved(int[] is) {
+        int[][] newLines = new int[lines.length - is.length][];
+        int newI = 0;
+        int k = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (k < is.length && is[k] == i) {
+                k++;
+                continue;
+            }
+            newLines[newI++] = lines[i];
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * returns the j'th element of every line.
+     */
+    private int[] getElements(int j) {
+        int[] elements = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            elements[i] = lines[i][j];
+        }
+        return elements;
+    }
+
+    private Image withElementRemoved(int j) {
+        int newLineLength = lineLength - 1;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            System.arraycopy(lines[i], 0, newLines[i], 0, j);
+            System.arraycopy(lines[i], j + 1, newLines[i], j, newLineLength - j);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * `elements[i]` is inserted into the i'th line.
+     */
+    private Image withElementInserted(int j, int[] elements) {
+        int newLineLength = lineLength + 1;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            System.arraycopy(lines[i], 0, newLines[i], 0, j);
+            newLines[i][j] = toOpaque(elements[i]);
+            System.arraycopy(lines[i], j, newLines[i], j + 1, lineLength - j);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * the j'th element of the i'th line becomes `elements[i]`.
+     */
+    private Image withElementsSet(int j, int[] elements) {
+        int[][] newLines = new int[lines.length][];
+        for (int i = 0; i < lines.length; i++) {
+            newLines[i] = lines[i].clone();
+            newLines[i][j] = toOpaque(elements[i]);
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * the `seam[i]`'th element is removed from the i'th line.
+     */
+    private Image withElementPerLineRemoved(int[] seam) {
+        int newLineLength = lineLength - 1;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            int j = seam[i];
+            assert 0 <= j && j < lineLength;
+            System.arraycopy(lines[i], 0, newLines[i], 0, j);
+            System.arraycopy(lines[i], j + 1, newLines[i], j, newLineLength - j);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * `seamRGB[i]` is inserted into the i'th line before its `seam[i]`'th element.
+     */
+    private Image withElementPerLineInserted(int[] seam, int[] seamRGB) {
+        int newLineLength = lineLength + 1;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            int j = seam[i];
+            assert 0 <= j && j <= lineLength;
+            System.arraycopy(lines[i], 0, newLines[i], 0, j);
+            newLines[i][j] = toOpaque(seamRGB[i]);
+            System.arraycopy(lines[i], j, newLines[i], j + 1, lineLength - j);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * the elements whose indices are in the sorted array `removedJs[i]` are removed from the i'th line.
+     * every line has the same number of elements removed.
+     */
+    private Image withElementsPerLineRemoved(int[][] removedJs) {
+        int newLineLength = lineLength - removedJs[0].length;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            int[] line = lines[i];
+            int[] newLine = newLines[i];
+            int[] js = removedJs[i];
+            assert js.length == 0 || (0 <= js[0] && js[js.length - 1] < lineLength);
+            // the elements between consecutive removed elements are copied as one block.
+            int fromJ = 0;
+            int newJ = 0;
+            for (int j : js) {
+                System.arraycopy(line, fromJ, newLine, newJ, j - fromJ);
+                newJ += j - fromJ;
+                fromJ = j + 1;
+            }
+            System.arraycopy(line, fromJ, newLine, newJ, lineLength - fromJ);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * `insertedRGBs[i][k]` is inserted into the i'th line so that it becomes the new line's
+     * `insertedJs[i][k]`'th element. `insertedJs[i]` is sorted, and every line has the same number of insertions.
+     */
+    private Image withElementsPerLineInserted(int[][] insertedJs, int[][] insertedRGBs) {
+        int newLineLength = lineLength + insertedJs[0].length;
+        int[][] newLines = new int[lines.length][newLineLength];
+        for (int i = 0; i < lines.length; i++) {
+            int[] line = lines[i];
+            int[] newLine = newLines[i];
+            int[] js = insertedJs[i];
+            assert js.length == 0 || (0 <= js[0] && js[js.length - 1] < newLineLength);
+            int fromJ = 0;
+            int newJ = 0;
+            for (int k = 0; k < js.length; k++) {
+                int length = js[k] - newJ;
+                System.arraycopy(line, fromJ, newLine, newJ, length);
+                fromJ += length;
+                newLine[js[k]] = toOpaque(insertedRGBs[i][k]);
+                newJ = js[k] + 1;
+            }
+            System.arraycopy(line, fromJ, newLine, newJ, lineLength - fromJ);
+        }
+        return new Image(newLines, newLineLength, isTransposed);
+    }
+
+    /**
+     * the j'th element is removed from each of the lines whose indices are in the sorted array `removedIs[j]`,
+     * and the following lines' j'th elements shift back. every element has the same number of lines removed.
+     * lines before the first removed line and after the last removed line are shared.
+     */
+    private Image withSeamsAcrossLinesRemoved(int[][] removedIs) {
+        int count = removedIs[0].length;
+        int newLineCount = lines.length - count;
+        if (count == 0) return this;
+
+        int minI = Arrays.stream(removedIs).mapToInt(is -> is[0]).min().orElseThrow();
+        int maxI = Arrays.stream(removedIs).mapToInt(is -> is[count - 1]).max().orElseThrow();
+        assert 0 <= minI && maxI < lines.length;
+
+        int[][] newLines = new int[newLineCount][];
+        System.arraycopy(lines, 0, newLines, 0, minI);
+        System.arraycopy(lines, maxI + 1, newLines, maxI + 1 - count, lines.length - maxI - 1);
+        for (int newI = minI; newI < maxI + 1 - count; newI++) {
+            newLines[newI] = new int[lineLength];
+        }
+        for (int j = 0; j < lineLength; j++) {
+            int[] is = removedIs[j];
+            int k = 0;
+            int newI = minI;
+            for (int i = minI; i <= maxI; i++) {
+                if (k < count && is[k] == i) {
+                    k++;
+                    continue;
+                }
+                newLines[newI++][j] = lines[i][j];
+            }
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * `insertedRGBs[j][k]` is inserted as the j'th element of the new line whose index is `insertedIs[j][k]`,
+     * and the following lines' j'th elements shift forward. `insertedIs[j]` is sorted,
+     * and every element has the same number of insertions.
+     * lines before the first inserted line and after the last inserted line are shared.
+     */
+    private Image withSeamsAcrossLinesInserted(int[][] insertedIs, int[][] insertedRGBs) {
+        int count = insertedIs[0].length;
+        int newLineCount = lines.length + count;
+        if (count == 0) return this;
+
+        int minI = Arrays.stream(insertedIs).mapToInt(is -> is[0]).min().orElseThrow();
+        int maxI = Arrays.stream(insertedIs).mapToInt(is -> is[count - 1]).max().orElseThrow();
+        assert 0 <= minI && maxI < newLineCount;
+
+        int[][] newLines = new int[newLineCount][];
+        System.arraycopy(lines, 0, newLines, 0, minI);
+        System.arraycopy(lines, maxI + 1 - count, newLines, maxI + 1, newLineCount - maxI - 1);
+        for (int newI = minI; newI <= maxI; newI++) {
+            newLines[newI] = new int[lineLength];
+        }
+        for (int j = 0; j < lineLength; j++) {
+            int[] is = insertedIs[j];
+            int k = 0;
+            int i = minI;
+            for (int newI = minI; newI <= maxI; newI++) {
+                if (k < count && is[k] == newI) {
+                    newLines[newI][j] = toOpaque(insertedRGBs[j][k++]);
+                    continue;
+                }
+                newLines[newI][j] = lines[i++][j];
+            }
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * the j'th element is removed from the `seam[j]`'th line, and the following lines' j'th elements shift back.
+     */
+    private Image withSeamAcrossLinesRemoved(int[] seam) {
+        int newLineCount = lines.length - 1;
+        int minI = Arrays.stream(seam).min().orElseThrow();
+        int maxI = Arrays.stream(seam).max().orElseThrow();
+        assert 0 <= minI && maxI < lines.length;
+
+        int[][] newLines = new int[newLineCount][];
+        System.arraycopy(lines, 0, newLines, 0, minI);
+        System.arraycopy(lines, maxI + 1, newLines, maxI, newLineCount - maxI);
+        for (int i = minI; i < maxI; i++) {
+            int[] newLine = new int[lineLength];
+            for (int j = 0; j < lineLength; j++) {
+                // elements of lines at or after the seam shift one line back.
+                newLine[j] = i < seam[j] ? lines[i][j] : lines[i + 1][j];
+            }
+            newLines[i] = newLine;
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * `seamRGB[j]` is inserted as the j'th element before the `seam[j]`'th line,
+     * and the following lines' j'th elements shift forward.
+     */
+    private Image withSeamAcrossLinesInserted(int[] seam, int[] seamRGB) {
+        int lineCount = lines.length;
+        int minI = Arrays.stream(seam).min().orElseThrow();
+        int maxI = Arrays.stream(seam).max().orElseThrow();
+        assert 0 <= minI && maxI <= lineCount;
+
+        int[][] newLines = new int[lineCount + 1][];
+        System.arraycopy(lines, 0, newLines, 0, minI);
+        System.arraycopy(lines, maxI, newLines, maxI + 1, lineCount - maxI);
+        for (int i = minI; i <= maxI; i++) {
+            int[] newLine = new int[lineLength];
+            for (int j = 0; j < lineLength; j++) {
+                if (i < seam[j]) {
+                    newLine[j] = lines[i][j];
+                } else if (i == seam[j]) {
+                    newLine[j] = toOpaque(seamRGB[j]);
+                } else {
+                    newLine[j] = lines[i - 1][j];
+                }
+            }
+            newLines[i] = newLine;
+        }
+        return new Image(newLines, lineLength, isTransposed);
+    }
+
+    /**
+     * returns a line array holding the packed rgb values of `colors`.
+     */
+    private static int[] toLineArray(List<Color> colors) {
+        int[] lineArray = new int[colors.size()];
+        for (int i = 0; i < lineArray.length; i++) {
+            lineArray[i] = toOpaque(colors.get(i).getRGB());
+        }
+        return lineArray;
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -216,8 +954,20 @@ public class Image {
     public Color getColorAt(int x, int y) {
         assert existsColumnAt(x) && existsRowAt(y);
 
-        int rgb = bufferedImage.getRGB(x, y);
-        return new Color(rgb);
+        return new Color(getRGBAt(x, y));
+    }
+
+    /**
+     * returns the packed rgb value of the pixel at (x,y), as returned by `Color.getRGB`.
+     * unlike `getColorAt`, this allocates nothing.
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    @Override
+    public int getRGBAt(int x, int y) {
+        assert existsColumnAt(x) && existsRowAt(y);
+
+        return isTransposed ? lines[y][x] : lines[x][y];
     }
 
     /**
@@ -229,39 +979,39 @@ public class Image {
     public Image setColorAt(int x, int y, Color color) {
         assert existsColumnAt(x) && existsRowAt(y);
 
-        List<List<Color>> columns = getColumns();
-        List<Color> column = columns.get(x);
-        column.set(y, color);
-        return fromColumns(columns);
+        // only the line holding the pixel changes, thus only that line is copied.
+        int i = isTransposed ? y : x;
+        int j = isTransposed ? x : y;
+        int[] newLine = lines[i].clone();
+        newLine[j] = toOpaque(color.getRGB());
+        return withLineSet(i, newLine);
     }
 
     /**
      * returns the number of pixels on the x-axis.
      * i.e. returns the number of columns.
      */
-    public int getWidth() {return bufferedImage.getWidth();}
+    @Override
+    public int getWidth() {return isTransposed ? lineLength : lines.length;}
 
     /**
      * returns the number of pixels on the y-axis.
      * i.e. returns the number of rows.
      */
-    public int getHeight() {return bufferedImage.getHeight();}
+    @Override
+    public int getHeight() {return isTransposed ? lines.length : lineLength;}
 
     /**
      * returns a buffered image representation of this image.
      */
     public BufferedImage getBufferedImage() {
-        // if we directly return `bufferedImage`, `bufferedImage` can be mutated.
-        // thus we return a deep copy of `bufferedImage`.
-        ColorModel colorModel = bufferedImage.getColorModel();
-        boolean isAlphaPremultiplied = colorModel.isAlphaPremultiplied();
-        WritableRaster raster = bufferedImage.copyData(null);
-        return new BufferedImage(
-                colorModel,
-                raster,
-                isAlphaPremultiplied,
-                null
-        );
+        int width = getWidth();
+        int height = getHeight();
+        BufferedImage bufferedImage = new BufferedImage(width, height, TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            bufferedImage.setRGB(0, y, width, 1, getRowRGB(y), 0, width);
+        }
+        return bufferedImage;
     }
 
     /**
@@ -282,19 +1032,60 @@ public class Image {
     @Override
     public boolean equals(Object object) {
         if (object instanceof Image other) {
-            return this.getRows().equals(other.getRows());
+            if (this.getWidth() != other.getWidth() || this.getHeight() != other.getHeight()) return false;
+
+            if (this.isTransposed == other.isTransposed) {
+                for (int i = 0; i < lines.length; i++) {
+                    if (!Arrays.equals(this.lines[i], other.lines[i])) return false;
+                }
+                return true;
+            }
+            for (int x = 0; x < getWidth(); x++) {
+                for (int y = 0; y < getHeight(); y++) {
+                    if (this.getRGBAt(x, y) != other.getRGBAt(x, y)) return false;
+                }
+            }
+            return true;
         }
         return false;
     }
 
+    /**
+     * combines the hash codes of the columns, as computed by `Arrays.hashCode`,
+     * thus equal images have equal hash codes regardless of whether they are transposed.
+     */
+    @Override
+    public int hashCode() {
+        int hashCode = getHeight();
+        for (int x = 0; x < getWidth(); x++) {
+            hashCode = 31 * hashCode + (isTransposed ? Arrays.hashCode(getElements(x)) : Arrays.hashCode(lines[x]));
+        }
+        return hashCode;
+    }
+
+    /**
+     * returns `rgb` with its alpha component set to fully opaque.
+     * images do not have transparency, thus every stored pixel is opaque.
+     */
+    static int toOpaque(int rgb) {return 0xFF000000 | rgb;}
+
     ///////////////////////////////////////////////////////////////////////////
     // ENERGY
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * returns the energy map of this image.
+     * prefer this over `getEnergyAt` when the energies of many pixels are needed.
+     */
+    public EnergyMap getEnergyMap() {
+        return EnergyMap.of(this);
+    }
+
     public List<List<Double>> getEnergyRows() {
+        EnergyMap energyMap = getEnergyMap();
         return initializeList(
                 getHeight(),
-                this::getEnergyRow
+                y -> initializeList(getWidth(), x -> energyMap.getEnergyAt(x, y))
         );
     }
 
@@ -308,9 +1099,10 @@ public class Image {
     }
 
     public List<List<Double>> getEnergyColumns() {
+        EnergyMap energyMap = getEnergyMap();
         return initializeList(
                 getWidth(),
-                this::getEnergyColumn
+                x -> initializeList(getHeight(), y -> energyMap.getEnergyAt(x, y))
         );
     }
 
@@ -336,11 +1128,8 @@ public class Image {
         x = clamp(x, minIndexX, maxIndexX);
         y = clamp(y, minIndexY, maxIndexY);
 
-        Color color = getColorAt(x, y);
-        double red = color.getRed();
-        double green = color.getGreen();
-        double blue = color.getBlue();
-        return (red + green + blue) / 3.0;
+        int rgb = getRGBAt(x, y);
+        return EnergyMap.getBrightnessOf(rgb);
     }
 
     public static double getEnergyOfList(List<Double> brightnesses) {
@@ -390,6 +1179,7 @@ public class Image {
         return topRowEnergy - bottomRowEnergy;
     }
 
+    @Override
     public double getEnergyAt(int x, int y) {
         assert existsColumnAt(x) && existsRowAt(y);
 
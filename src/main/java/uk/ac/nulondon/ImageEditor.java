@@ -5,7 +5,6 @@ import java.util.*;
 
 import static java.awt.Color.BLUE;
 import static java.awt.Color.RED;
-import static uk.ac.nulondon.CollectionUtilities.*;
 
 /**
  * a class enabling edits to images
@@ -13,38 +12,270 @@ import static uk.ac.nulondon.CollectionUtilities.*;
 public class ImageEditor {
     private static final int NOT_HIGHLIGHTED = -1;
 
-    private record ImageState(Image image, int highlightedColumnIndex) {
+    /**
+     * a highlight is an overlay on an image state's image.
+     * it is only drawn onto the image's pixels when the highlighted image is requested.
+     */
+    private record Highlight(int columnIndex, Color color) {}
+
+    private static final Highlight NO_HIGHLIGHT = new Highlight(NOT_HIGHLIGHTED, null);
+
+    /**
+     * `image` never has a highlight drawn onto it.
+     */
+    private record ImageState(Image image, Highlight highlight) {
         public boolean isHighlighted() {
-            return highlightedColumnIndex != NOT_HIGHLIGHTED;
+            return highlight.columnIndex() != NOT_HIGHLIGHTED;
         }
     }
 
-    private final Stack<ImageState> imageStateStack = new Stack<>();
+    /**
+     * an edit stores only what it changed, which is enough to rebuild the image state before the edit.
+     */
+    private sealed interface Edit permits HighlightEdit, DeleteColumnEdit, DeleteColumnsEdit, RemoveSeamEdit, RemoveSeamsEdit, InsertSeamsEdit {}
+
+    /**
+     * a column was highlighted, replacing `previousHighlight`.
+     * highlights stay visible until undone, thus if a column was already highlighted, its highlight was drawn onto
+     * the image. `overdrawnColumn` then holds that column's packed rgb values before it was drawn onto, else it is
+     * null.
+     */
+    private record HighlightEdit(Highlight previousHighlight, int[] overdrawnColumn) implements Edit {}
+
+    /**
+     * the highlighted x'th column was deleted.
+     * `deletedColumn` holds the column's packed rgb values, and `highlightEdit` is the edit which highlighted it,
+     * which is undone with the deletion.
+     */
+    private record DeleteColumnEdit(
+            int x,
+            int[] deletedColumn,
+            HighlightEdit highlightEdit
+    ) implements Edit {}
+
+    /**
+     * the columns whose indices are in `xs` were deleted in a single pass.
+     * `deletedColumns[i]` holds the packed rgb values of the xs[i]'th column, shared with the image before the edit.
+     */
+    private record DeleteColumnsEdit(
+            int[] xs,
+            int[][] deletedColumns,
+            Highlight previousHighlight
+    ) implements Edit {}
+
+    /**
+     * the vertical seam `seam` was removed.
+     * `seamRGB` holds the seam's packed rgb values.
+     */
+    private record RemoveSeamEdit(
+            int[] seam,
+            int[] seamRGB,
+            Highlight previousHighlight
+    ) implements Edit {}
+
+    /**
+     * the vertical seams `seams` were removed in a single pass.
+     * the seams are in the coordinates of the image before the edit, and `seamRGBs` holds their packed rgb values.
+     */
+    private record RemoveSeamsEdit(
+            int[][] seams,
+            int[][] seamRGBs,
+            Highlight previousHighlight
+    ) implements Edit {}
+
+    /**
+     * duplicates of vertical seams were inserted in a single pass.
+     * `duplicateSeams` holds the duplicates' positions in the coordinates of the image after the edit.
+     */
+    private record InsertSeamsEdit(
+            int[][] duplicateSeams,
+            Highlight previousHighlight
+    ) implements Edit {}
+
+    private ImageState imageState;
+    private final Stack<Edit> editStack = new Stack<>();
+    /**
+     * the energy map of the un-highlighted image, or null if it has not been computed since the last undo.
+     * it is updated in place when a column or seam is removed, rather than recomputed.
+     */
+    private EnergyMap energyMap;
+    /**
+     * the column statistics of the un-highlighted image, or null if they must be computed again.
+     * they are updated in place when a column is deleted or re-inserted, rather than recomputed.
+     */
+    private ColumnStatistics columnStatistics;
 
     public ImageEditor(Image image) {
         Objects.requireNonNull(image);
-        ImageState imageState = new ImageState(image, NOT_HIGHLIGHTED);
-        imageStateStack.push(imageState);
+        imageState = new ImageState(image, NO_HIGHLIGHT);
+    }
+
+    /**
+     * creates an editor of `image` given its already computed energy map, e.g. by `StreamingImageLoader`.
+     */
+    public ImageEditor(Image image, EnergyMap energyMap) {
+        this(image);
+        Objects.requireNonNull(energyMap);
+        assert energyMap.getWidth() == image.getWidth() && energyMap.getHeight() == image.getHeight();
+
+        this.energyMap = energyMap;
     }
 
     public void deleteHighlightedColumn() {
         assert isImageHighlighted();
-        Image image = getImage();
+        // the highlight edit and the deletion are undone together,
+        // thus the highlight edit is replaced by a single delete edit.
+        HighlightEdit highlightEdit = (HighlightEdit) editStack.pop();
+        Image image = getUnhighlightedImage();
         int highlightedColumnIndex = getHighlightedColumnIndex();
         Image newImage = image.removeColumn(highlightedColumnIndex);
-        ImageState newImageState = new ImageState(newImage, NOT_HIGHLIGHTED);
-        imageStateStack.push(newImageState);
+        editStack.push(new DeleteColumnEdit(
+                highlightedColumnIndex,
+                image.getColumnRGB(highlightedColumnIndex),
+                highlightEdit
+        ));
+        imageState = new ImageState(newImage, NO_HIGHLIGHT);
+        if (energyMap != null) {
+            energyMap.removeColumn(highlightedColumnIndex);
+        }
+        if (columnStatistics != null) {
+            columnStatistics.removeColumn(highlightedColumnIndex, energyMap);
+        }
+    }
+
+    /**
+     * removes the vertical seam of minimum energy from the image, clearing the highlight if there is one.
+     * the image must be more than one pixel wide.
+     */
+    public void removeLowestEnergySeam() {
+        Image image = getUnhighlightedImage();
+        assert image.getWidth() > 1;
+
+        EnergyMap energyMap = getEnergyMap();
+        int[] seam = SeamFinder.findVerticalSeam(energyMap);
+        Image newImage = image.removeSeam(seam);
+        editStack.push(new RemoveSeamEdit(seam, image.getSeamRGB(seam), getImageState().highlight()));
+        imageState = new ImageState(newImage, NO_HIGHLIGHT);
+        energyMap.removeSeam(seam);
+        // a seam moves pixels between columns, thus every column it passes through has new sums.
+        columnStatistics = null;
+    }
+
+    /**
+     * removes `count` vertical seams from the image in a single pass, clearing the highlight if there is one.
+     * the seams are those removed by calling `removeLowestEnergySeam` `count` times,
+     * but the image is only rebuilt once, and the removal is undone by a single `undo`.
+     * `count` must be positive and less than the image's width.
+     */
+    public void removeLowestEnergySeams(int count) {
+        Image image = getUnhighlightedImage();
+        assert 0 < count && count < image.getWidth();
+
+        // the energy map is updated as each seam is found, thus it matches the new image afterwards.
+        int[][] seams = SeamFinder.findVerticalSeams(getEnergyMap(), count);
+        removeSeams(image, seams);
+        columnStatistics = null;
+    }
+
+    /**
+     * deletes the columns whose indices are in `xs` in a single pass, clearing the highlight if there is one.
+     * the deletion is undone by a single `undo`.
+     * `xs` must be sorted in ascending order without duplicates, and at least one column must remain.
+     */
+    public void deleteColumns(int[] xs) {
+        Objects.requireNonNull(xs);
+        Image image = getUnhighlightedImage();
+        assert 0 < xs.length && xs.length < image.getWidth();
+
+        // the deleted columns are kept by reference, as images never mutate their column arrays.
+        int[][] deletedColumns = new int[xs.length][];
+        for (int i = 0; i < xs.length; i++) {
+            deletedColumns[i] = image.getColumnRGB(xs[i]);
+        }
+        Image newImage = image.removeColumns(xs);
+        editStack.push(new DeleteColumnsEdit(xs.clone(), deletedColumns, getImageState().highlight()));
+        imageState = new ImageState(newImage, NO_HIGHLIGHT);
+        energyMap = null;
+        if (columnStatistics != null) {
+            for (int i = xs.length - 1; i >= 0; i--) {
+                columnStatistics.removeColumn(xs[i], null);
+            }
+        }
+    }
+
+    /**
+     * enlarges the image by `count` columns in a single pass, clearing the highlight if there is one.
+     * the `count` seams that `removeLowestEnergySeams(count)` would remove are duplicated, as by
+     * `Image.duplicateSeams`. the enlargement is undone by a single `undo`.
+     * `count` must be positive and less than the image's width, thus larger enlargements take several calls.
+     */
+    public void insertLowestEnergySeams(int count) {
+        Image image = getUnhighlightedImage();
+        assert 0 < count && count < image.getWidth();
+
+        int[][] seams = SeamFinder.findVerticalSeams(getEnergyMap(), count);
+        Image newImage = image.duplicateSeams(seams);
+        editStack.push(new InsertSeamsEdit(Image.getDuplicateSeams(seams), getImageState().highlight()));
+        imageState = new ImageState(newImage, NO_HIGHLIGHT);
+        // finding the seams removed them from the energy map, which no longer matches any image.
+        energyMap = null;
+        columnStatistics = null;
+    }
+
+    private void removeSeams(Image image, int[][] seams) {
+        Image newImage = image.removeSeams(seams);
+        editStack.push(new RemoveSeamsEdit(seams, image.getSeamRGBs(seams), getImageState().highlight()));
+        imageState = new ImageState(newImage, NO_HIGHLIGHT);
+    }
+
+    /**
+     * returns the column statistics of the un-highlighted image, without energy sums unless they are known.
+     * the returned statistics are owned by this editor and must not be modified.
+     */
+    private ColumnStatistics getColumnStatistics() {
+        if (columnStatistics == null) {
+            columnStatistics = ColumnStatistics.of(getUnhighlightedImage());
+        }
+        return columnStatistics;
+    }
+
+    /**
+     * returns the energy map of the un-highlighted image.
+     * the returned energy map is owned by this editor and must not be modified.
+     */
+    private EnergyMap getEnergyMap() {
+        if (energyMap == null) {
+            energyMap = EnergyMap.of(getUnhighlightedImage());
+        }
+        return energyMap;
     }
 
     public boolean isImageHighlighted() {
         return getImageState().isHighlighted();
     }
 
-    public Image getImage() {return getImageState().image;}
+    /**
+     * returns the current image with the highlighted column, if any, drawn onto it.
+     */
+    public Image getImage() {
+        ImageState imageState = getImageState();
+        Image image = imageState.image();
+        if (!imageState.isHighlighted()) return image;
+
+        Highlight highlight = imageState.highlight();
+        int[] highlightedColumn = new int[image.getHeight()];
+        Arrays.fill(highlightedColumn, Image.toOpaque(highlight.color().getRGB()));
+        return image.setColumnRGB(highlight.columnIndex(), highlightedColumn);
+    }
+
+    /**
+     * returns the current image without the highlighted column drawn onto it.
+     */
+    public Image getUnhighlightedImage() {return getImageState().image;}
 
-    public int getHighlightedColumnIndex() {return getImageState().highlightedColumnIndex;}
+    public int getHighlightedColumnIndex() {return getImageState().highlight.columnIndex();}
 
-    private ImageState getImageState() {return imageStateStack.peek();}
+    private ImageState getImageState() {return imageState;}
 
     public void highlightBluestColumn() {
         int bluestColumnIndex = getBluestColumnIndex();
@@ -53,49 +284,111 @@ public class ImageEditor {
 
     public void highlightRandomColumn() {
         Random random = new Random();
-        Image image = getImage();
-        int width = image.getWidth();
+        // the highlight does not change the width, thus the highlighted image need not be built.
+        int width = getUnhighlightedImage().getWidth();
         int randomColumnIndex = random.nextInt(width);
         highlightColumn(randomColumnIndex, RED);
     }
 
     public void highlightColumn(int x, Color color) {
-        Image image = getImage();
-        int height = image.getHeight();
-        List<List<Color>> columns = image.getColumns();
-        List<Color> highlightedColumn = initializeList(height, i -> color);
-        columns.set(x, highlightedColumn);
-        Image highlightedImage = Image.fromColumns(columns);
-        ImageState newImageState = new ImageState(highlightedImage, x);
-        imageStateStack.push(newImageState);
+        Image image = getUnhighlightedImage();
+        assert image.existsColumnAt(x);
+
+        Highlight previousHighlight = getImageState().highlight();
+        int[] overdrawnColumn = null;
+        if (isImageHighlighted()) {
+            // the previous highlight stays visible, thus it is drawn onto the image rather than replaced.
+            overdrawnColumn = image.getColumnRGB(previousHighlight.columnIndex());
+            image = getImage();
+            energyMap = null;
+            columnStatistics = null;
+        }
+        editStack.push(new HighlightEdit(previousHighlight, overdrawnColumn));
+        imageState = new ImageState(image, new Highlight(x, color));
     }
 
     public void undo() {
         assert isImageEdited();
-        // we want to revert to the last un-highlighted image.
-        // if the current image is highlighted, the image before was un-highlighted.
-        // thus we should undo once.
-        // if the current image is un-highlighted, the image before was highlighted.
-        // if the image before was highlighted, the image twice before was un-highlighted.
-        // thus we should undo twice.
-        if (isImageHighlighted()) {
-            imageStateStack.pop();
-        } else {
-            imageStateStack.pop();
-            imageStateStack.pop();
+        // undoing a highlight restores the previous highlight, and the pixels the previous highlight was drawn onto.
+        // undoing a deletion re-inserts the deleted column's pixels, or every deleted column's pixels,
+        // which reverts to the last un-highlighted image.
+        // undoing a seam removal re-inserts the seam's pixels, or every seam's pixels if several were removed.
+        // undoing a seam insertion removes the duplicates.
+        Image image = getUnhighlightedImage();
+        Edit edit = editStack.pop();
+        if (edit instanceof HighlightEdit highlightEdit) {
+            undoHighlight(image, highlightEdit);
+        } else if (edit instanceof DeleteColumnEdit deleteColumnEdit) {
+            Image previousImage = image.addColumnRGB(deleteColumnEdit.x(), deleteColumnEdit.deletedColumn());
+            energyMap = null;
+            if (columnStatistics != null) {
+                columnStatistics.insertColumn(deleteColumnEdit.x(), deleteColumnEdit.deletedColumn());
+            }
+            undoHighlight(previousImage, deleteColumnEdit.highlightEdit());
+        } else if (edit instanceof DeleteColumnsEdit deleteColumnsEdit) {
+            // the columns are re-inserted from the left-most, thus each index is already in place when inserted.
+            Image previousImage = image;
+            int[] xs = deleteColumnsEdit.xs();
+            for (int i = 0; i < xs.length; i++) {
+                previousImage = previousImage.addColumnRGB(xs[i], deleteColumnsEdit.deletedColumns()[i]);
+                if (columnStatistics != null) {
+                    columnStatistics.insertColumn(xs[i], deleteColumnsEdit.deletedColumns()[i]);
+                }
+            }
+            imageState = new ImageState(previousImage, deleteColumnsEdit.previousHighlight());
+            energyMap = null;
+        } else if (edit instanceof RemoveSeamEdit removeSeamEdit) {
+            Image previousImage = image.addSeam(removeSeamEdit.seam(), removeSeamEdit.seamRGB());
+            imageState = new ImageState(previousImage, removeSeamEdit.previousHighlight());
+            energyMap = null;
+            columnStatistics = null;
+        } else if (edit instanceof RemoveSeamsEdit removeSeamsEdit) {
+            Image previousImage = image.addSeams(removeSeamsEdit.seams(), removeSeamsEdit.seamRGBs());
+            imageState = new ImageState(previousImage, removeSeamsEdit.previousHighlight());
+            energyMap = null;
+            columnStatistics = null;
+        } else if (edit instanceof InsertSeamsEdit insertSeamsEdit) {
+            Image previousImage = image.removeSeams(insertSeamsEdit.duplicateSeams());
+            imageState = new ImageState(previousImage, insertSeamsEdit.previousHighlight());
+            energyMap = null;
+            columnStatistics = null;
         }
     }
 
+    /**
+     * restores the image state before `highlightEdit`, given the un-highlighted image after it.
+     */
+    private void undoHighlight(Image image, HighlightEdit highlightEdit) {
+        Highlight previousHighlight = highlightEdit.previousHighlight();
+        if (highlightEdit.overdrawnColumn() != null) {
+            image = image.setColumnRGB(previousHighlight.columnIndex(), highlightEdit.overdrawnColumn());
+            energyMap = null;
+            columnStatistics = null;
+        }
+        imageState = new ImageState(image, previousHighlight);
+    }
+
+    /**
+     * returns the index of the column of the un-highlighted image with the greatest sum of blue components.
+     * if several columns have the greatest sum, the left-most one's index is returned.
+     */
     public int getBluestColumnIndex() {
-        Image image = getImage();
-        List<List<Color>> columns = image.getColumns();
-        List<List<Integer>> blueComponents = map2D(columns, Color::getBlue);
-        List<Integer> blueComponentSums = map(blueComponents, CollectionUtilities::sum);
-        int maxBlueComponentSum = Collections.max(blueComponentSums);
-        return blueComponentSums.indexOf(maxBlueComponentSum);
+        return getColumnStatistics().getBluestColumnIndex();
+    }
+
+    /**
+     * returns the index of the column of the un-highlighted image with the least sum of energies.
+     * if several columns have the least sum, the left-most one's index is returned.
+     */
+    public int getLowestEnergyColumnIndex() {
+        ColumnStatistics columnStatistics = getColumnStatistics();
+        if (!columnStatistics.hasEnergySums()) {
+            columnStatistics.computeEnergySums(getEnergyMap());
+        }
+        return columnStatistics.getLowestEnergyColumnIndex();
     }
 
     public boolean isImageEdited() {
-        return imageStateStack.size() > 1;
+        return !editStack.isEmpty();
     }
-}
\ No newline at end of file
+}
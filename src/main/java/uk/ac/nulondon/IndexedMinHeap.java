@@ -0,0 +1,138 @@
+package uk.ac.nulondon;
+
+import java.util.Arrays;
+
+/**
+ * a binary min heap of the ids in the range [0, capacity), each with a key.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * unlike `java.util.PriorityQueue`, the key of an id in the heap can be decreased in O(log n),
+ * and ids and keys are stored in primitive arrays, thus no operation allocates.
+ */
+public class IndexedMinHeap {
+    private static final int NOT_IN_HEAP = -1;
+
+    /**
+     * `heap[i]` is the id at the i'th position of the heap.
+     */
+    private final int[] heap;
+    /**
+     * `positions[id]` is the position of `id` in `heap`, or `NOT_IN_HEAP`.
+     */
+    private final int[] positions;
+    /**
+     * `keys[id]` is the key of `id`.
+     */
+    private final double[] keys;
+    private int size = 0;
+
+    /**
+     * constructs an empty heap which can hold the ids in the range [0, capacity).
+     */
+    public IndexedMinHeap(int capacity) {
+        assert capacity >= 0;
+
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, NOT_IN_HEAP);
+    }
+
+    public boolean isEmpty() {return size == 0;}
+
+    public int size() {return size;}
+
+    public boolean contains(int id) {
+        assert 0 <= id && id < positions.length;
+
+        return positions[id] != NOT_IN_HEAP;
+    }
+
+    /**
+     * returns the key of `id`, which must be in the heap.
+     */
+    public double getKey(int id) {
+        assert contains(id);
+
+        return keys[id];
+    }
+
+    /**
+     * adds `id` with the key `key`. `id` must not be in the heap.
+     */
+    public void insert(int id, double key) {
+        assert !contains(id);
+
+        heap[size] = id;
+        positions[id] = size;
+        keys[id] = key;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * decreases the key of `id` to `key`. `id` must be in the heap, and `key` must not exceed its key.
+     */
+    public void decreaseKey(int id, double key) {
+        assert contains(id) && key <= keys[id];
+
+        keys[id] = key;
+        siftUp(positions[id]);
+    }
+
+    /**
+     * removes and returns the id with the smallest key. the heap must not be empty.
+     */
+    public int pollMin() {
+        assert !isEmpty();
+
+        int minId = heap[0];
+        size--;
+        if (size > 0) {
+            move(heap[size], 0);
+            siftDown(0);
+        }
+        positions[minId] = NOT_IN_HEAP;
+        return minId;
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        double key = keys[id];
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            int parentId = heap[parentPosition];
+            if (keys[parentId] <= key) break;
+
+            move(parentId, position);
+            position = parentPosition;
+        }
+        move(id, position);
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        double key = keys[id];
+        while (true) {
+            int childPosition = 2 * position + 1;
+            if (childPosition >= size) break;
+
+            int rightChildPosition = childPosition + 1;
+            if (rightChildPosition < size && keys[heap[rightChildPosition]] < keys[heap[childPosition]]) {
+                childPosition = rightChildPosition;
+            }
+            int childId = heap[childPosition];
+            if (key <= keys[childId]) break;
+
+            move(childId, position);
+            position = childPosition;
+        }
+        move(id, position);
+    }
+
+    private void move(int id, int position) {
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -1,16 +1,19 @@
 package uk.ac.nulondon;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import static uk.ac.nulondon.DiskUtilities.writeToDisk;
 import static uk.ac.nulondon.UserInterface.askUserForMenuOption;
 import static uk.ac.nulondon.UserInterface.askUserForFilePath;
 
 public class Main {
     private final ImageEditor imageEditor;
+    /**
+     * writes the image after every prompt without making the user wait for it to be encoded.
+     */
+    private final SnapshotWriter snapshotWriter = new SnapshotWriter();
 
     private class HighlightRandomColumnMenuOption extends MenuOption {
         public HighlightRandomColumnMenuOption() {
@@ -57,6 +60,17 @@ public class Main {
 
     }
 
+    private class RemoveLowestEnergySeamMenuOption extends MenuOption {
+        public RemoveLowestEnergySeamMenuOption() {
+            super("remove the lowest-energy seam", "s");
+        }
+
+        @Override
+        public void onChosen() {
+            imageEditor.removeLowestEnergySeam();
+        }
+    }
+
     private class QuitMenuOption extends MenuOption {
         public QuitMenuOption() {
             super("quit", "q");
@@ -64,6 +78,12 @@ public class Main {
 
         @Override
         public void onChosen() {
+            // the latest snapshot is written before quitting.
+            try {
+                snapshotWriter.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             System.exit(0);
         }
     }
@@ -73,18 +93,20 @@ public class Main {
     private final MenuOption highlightBluestColumnMenuOption   = new HighlightBluestColumnMenuOption();
     private final MenuOption undoMenuOption                    = new UndoMenuOption();
     private final MenuOption deleteHighlightedColumnMenuOption = new DeleteHighlightedColumnMenuOption();
+    private final MenuOption removeLowestEnergySeamMenuOption  = new RemoveLowestEnergySeamMenuOption();
     private final MenuOption quitMenuOption                    = new QuitMenuOption();
     // @formatter:on
 
     private Main() throws IOException {
         String filePath = askUserForFilePath();
-        Image image = Image.fromFilePath(filePath);
-        imageEditor = new ImageEditor(image);
+        // the energy map is computed while the image is decoded, thus the first seam is found sooner.
+        StreamingImageLoader.LoadedImage loadedImage = StreamingImageLoader.load(filePath);
+        imageEditor = new ImageEditor(loadedImage.image(), loadedImage.energyMap());
+        Image image;
         for (int i = 0; ; i++) {
             filePath = "src/main/resources/image-editor/image-" + i + ".png";
             image = imageEditor.getImage();
-            BufferedImage bufferedImage = image.getBufferedImage();
-            writeToDisk(bufferedImage, filePath);
+            snapshotWriter.submit(image, filePath);
 
             List<MenuOption> menuOptions = getMenuOptions();
             MenuOption chosenMenuOption = askUserForMenuOption(menuOptions);
@@ -103,6 +125,9 @@ public class Main {
         } else {
             menuOptions.add(highlightBluestColumnMenuOption);
             menuOptions.add(highlightRandomColumnMenuOption);
+            if (!isImageMinimumSize) {
+                menuOptions.add(removeLowestEnergySeamMenuOption);
+            }
         }
         if (imageEditor.isImageEdited()) {
             menuOptions.add(undoMenuOption);
@@ -111,7 +136,20 @@ public class Main {
         return menuOptions;
     }
 
+    /**
+     * with no arguments, edits an image interactively.
+     * with the arguments `<image file path> <script file path>`, runs the edit script against the image without
+     * user input, writing only the images its `save` steps request. see `EditScript`.
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length == 2) {
+            EditScript.fromFilePath(args[1]).run(args[0]);
+            return;
+        }
+        if (args.length != 0) {
+            System.err.println("usage: Main [<image file path> <script file path>]");
+            System.exit(2);
+        }
         new Main();
     }
 }
@@ -1,8 +1,9 @@
 package uk.ac.nulondon;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 public class Node {
     private final Map<Node, Double> distanceMap = new HashMap<>();
@@ -18,4 +19,12 @@ public class Node {
     }
 
     public Map<Node, Double> getDistanceMap() {return new HashMap<>(distanceMap);}
+
+    /**
+     * returns an unmodifiable view of the adjacent nodes and their distances.
+     * unlike `getDistanceMap`, this does not copy.
+     */
+    public Set<Map.Entry<Node, Double>> getAdjacentNodeDistances() {
+        return Collections.unmodifiableMap(distanceMap).entrySet();
+    }
 }
@@ -0,0 +1,111 @@
+package uk.ac.nulondon;
+
+import java.util.Objects;
+
+/**
+ * an implicit graph of the vertical seams of an energy map, whose edges are computed on demand.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the pixel at (x,y) has the id `y * width + x`. there are two more nodes: a source and a sink.
+ * <br><br>
+ * the source has an edge to every pixel of the top-most row.
+ * every pixel that is not in the bottom-most row has an edge to each of the (up to three) pixels below it,
+ * i.e. to (x-1,y+1), (x,y+1) and (x+1,y+1). every pixel of the bottom-most row has an edge to the sink.
+ * an edge to a pixel weighs that pixel's energy, and an edge to the sink weighs nothing.
+ * <br><br>
+ * thus the shortest path from the source to the sink passes through a vertical seam of minimum energy,
+ * and no node or edge objects are ever created.
+ */
+public class PixelGridGraph implements Graph {
+    private final EnergyMap energyMap;
+    private final int width;
+    private final int height;
+
+    /**
+     * constructs the graph of the given non-null energy map.
+     * the energy map must not be modified while the graph is in use.
+     */
+    public PixelGridGraph(EnergyMap energyMap) {
+        Objects.requireNonNull(energyMap);
+
+        this.energyMap = energyMap;
+        this.width = energyMap.getWidth();
+        this.height = energyMap.getHeight();
+    }
+
+    public int getSourceId() {return width * height;}
+
+    public int getSinkId() {return width * height + 1;}
+
+    @Override
+    public int getNodeCount() {return width * height + 2;}
+
+    @Override
+    public int getEdgeCount(int id) {
+        assert 0 <= id && id < getNodeCount();
+
+        if (id == getSourceId()) return width;
+        if (id == getSinkId()) return 0;
+
+        int x = id % width;
+        int y = id / width;
+        if (y == height - 1) return 1;
+
+        return getLastDx(x) - getFirstDx(x) + 1;
+    }
+
+    @Override
+    public int getTarget(int id, int i) {
+        assert 0 <= i && i < getEdgeCount(id);
+
+        if (id == getSourceId()) return i;
+
+        int x = id % width;
+        int y = id / width;
+        if (y == height - 1) return getSinkId();
+
+        return (y + 1) * width + x + getFirstDx(x) + i;
+    }
+
+    @Override
+    public double getWeight(int id, int i) {
+        int target = getTarget(id, i);
+        if (target == getSinkId()) return 0;
+
+        return energyMap.getEnergyAt(target % width, target / width);
+    }
+
+    /**
+     * returns the vertical seam passed through by `path`, a path of ids from the source to the sink.
+     */
+    public int[] toSeam(int[] path) {
+        Objects.requireNonNull(path);
+        assert path.length == height + 2;
+        assert path[0] == getSourceId() && path[height + 1] == getSinkId();
+
+        int[] seam = new int[height];
+        for (int y = 0; y < height; y++) {
+            seam[y] = path[y + 1] % width;
+        }
+        return seam;
+    }
+
+    /**
+     * returns a vertical seam of minimum energy, found with dijkstra's algorithm.
+     */
+    public int[] findVerticalSeam() {
+        int[] path = DijkstrasAlgorithm.getShortestPath(this, getSourceId(), getSinkId());
+        return toSeam(path);
+    }
+
+    /**
+     * returns the horizontal offset of the left-most pixel below a pixel in the x'th column.
+     */
+    private int getFirstDx(int x) {return x > 0 ? -1 : 0;}
+
+    /**
+     * returns the horizontal offset of the right-most pixel below a pixel in the x'th column.
+     */
+    private int getLastDx(int x) {return x < width - 1 ? 1 : 0;}
+}
@@ -0,0 +1,89 @@
+package uk.ac.nulondon;
+
+import static uk.ac.nulondon.Utilities.clamp;
+
+/**
+ * a source of the packed rgb values of the pixels of an image, which need not be held in memory.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * algorithms that only need a few rows at a time (e.g. `SeamFinder.findVerticalSeam(PixelSource)`)
+ * accept a pixel source, thus they run on images held in memory (`Image`), mapped from disk (`RawImageFile`)
+ * or loaded tile by tile (`TiledImage`) alike.
+ * <br><br>
+ * energies are computed from the pixels as by `EnergyMap`, thus they are available without holding an energy map.
+ */
+public interface PixelSource {
+    /**
+     * returns the number of pixels on the x-axis.
+     */
+    int getWidth();
+
+    /**
+     * returns the number of pixels on the y-axis.
+     */
+    int getHeight();
+
+    /**
+     * returns the packed rgb value of the pixel at (x,y).
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    int getRGBAt(int x, int y);
+
+    /**
+     * copies the packed rgb values of the y'th row into `row`, ordered from the left-most pixel to the right-most pixel.
+     * y must be in the range [0, height), and the length of `row` must be at least the width.
+     */
+    default void getRowRGB(int y, int[] row) {
+        assert row.length >= getWidth();
+
+        for (int x = 0; x < getWidth(); x++) {
+            row[x] = getRGBAt(x, y);
+        }
+    }
+
+    /**
+     * returns the energy of the pixel at (x,y), which equals the energy an energy map of this image stores for it.
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    default double getEnergyAt(int x, int y) {
+        assert 0 <= x && x < getWidth() && 0 <= y && y < getHeight();
+
+        // out of bounds neighbours are clamped to the nearest pixel, thus the pixel's neighbourhood is copied into
+        // three rows of three pixels, in whose middle the energy is computed.
+        int[] xs = {clamp(x - 1, 0, getWidth() - 1), x, clamp(x + 1, 0, getWidth() - 1)};
+        int[] ys = {clamp(y - 1, 0, getHeight() - 1), y, clamp(y + 1, 0, getHeight() - 1)};
+        double[][] brightnessRows = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                brightnessRows[i][j] = EnergyMap.getBrightnessOf(getRGBAt(xs[j], ys[i]));
+            }
+        }
+        double[] energies = new double[3];
+        EnergyMap.computeEnergyRow(brightnessRows[0], brightnessRows[1], brightnessRows[2], 3, energies);
+        return energies[1];
+    }
+
+    /**
+     * copies the energies of the pixels of the y'th row into `energyRow`, ordered from the left-most pixel to the
+     * right-most pixel. only the rows above, of and below the y'th row are read.
+     * y must be in the range [0, height), and the length of `energyRow` must be at least the width.
+     */
+    default void getEnergyRow(int y, double[] energyRow) {
+        assert 0 <= y && y < getHeight();
+        assert energyRow.length >= getWidth();
+
+        int width = getWidth();
+        int[] rgbRow = new int[width];
+        double[][] brightnessRows = new double[3][width];
+        for (int i = 0; i < 3; i++) {
+            getRowRGB(clamp(y - 1 + i, 0, getHeight() - 1), rgbRow);
+            for (int x = 0; x < width; x++) {
+                brightnessRows[i][x] = EnergyMap.getBrightnessOf(rgbRow[x]);
+            }
+        }
+        EnergyMap.computeEnergyRow(brightnessRows[0], brightnessRows[1], brightnessRows[2], width, energyRow);
+    }
+}
@@ -0,0 +1,325 @@
+package uk.ac.nulondon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * encodes images as png files with a configurable compression level and filter.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * pixels are written as 8 bit rgb, as images have no transparency.
+ * <br><br>
+ * the rows are split into bands of about `bandPixelCount` pixels, which are filtered and deflated in parallel on the
+ * common fork/join pool, or one after another on the calling thread by a `sequential()` encoder. every band but the last is deflated with `Deflater.SYNC_FLUSH`, which ends it on a byte
+ * boundary without ending the deflate stream, thus the bands' outputs concatenate into a single stream.
+ * the zlib checksum of the whole stream is combined from the bands' checksums.
+ * <br><br>
+ * a band's deflater does not see the previous band's data, thus splitting costs a little compression.
+ */
+public class PngEncoder {
+    /**
+     * the filters a png row can be encoded with. each predicts a byte from the bytes to its left and above it,
+     * and stores the difference. better predictions compress better, but take longer to compute.
+     */
+    public enum Filter {
+        NONE, SUB, UP, AVERAGE, PAETH;
+
+        private byte getType() {return (byte) ordinal();}
+    }
+
+    public static final int DEFAULT_BAND_PIXEL_COUNT = 1 << 18;
+
+    /**
+     * stores the pixels without compression. for throwaway intermediate files.
+     */
+    public static final PngEncoder STORE = new PngEncoder(Deflater.NO_COMPRESSION, Filter.NONE);
+    /**
+     * compresses the pixels quickly, but not well.
+     */
+    public static final PngEncoder FAST = new PngEncoder(Deflater.BEST_SPEED, Filter.SUB);
+    /**
+     * compresses the pixels about as well as `ImageIO`.
+     */
+    public static final PngEncoder DEFAULT = new PngEncoder(Deflater.DEFAULT_COMPRESSION, Filter.PAETH);
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BYTES_PER_PIXEL = 3;
+    private static final int ADLER_BASE = 65521;
+
+    private final int compressionLevel;
+    private final Filter filter;
+    private final int bandPixelCount;
+    /**
+     * true if the bands are deflated in parallel on the common fork/join pool, else false.
+     */
+    private final boolean isParallel;
+
+    /**
+     * the deflated bytes of a band, and the adler-32 checksum and length of the band's uncompressed bytes.
+     */
+    private record Band(byte[] deflatedBytes, long adler, long length) {}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * constructs an encoder with the given compression level and non-null filter.
+     * `compressionLevel` must be in the range [0, 9], or `Deflater.DEFAULT_COMPRESSION`.
+     */
+    public PngEncoder(int compressionLevel, Filter filter) {
+        this(compressionLevel, filter, DEFAULT_BAND_PIXEL_COUNT);
+    }
+
+    /**
+     * constructs an encoder that splits the rows into bands of about `bandPixelCount` pixels.
+     * `bandPixelCount` must be positive.
+     */
+    PngEncoder(int compressionLevel, Filter filter, int bandPixelCount) {
+        this(compressionLevel, filter, bandPixelCount, true);
+    }
+
+    private PngEncoder(int compressionLevel, Filter filter, int bandPixelCount, boolean isParallel) {
+        Objects.requireNonNull(filter);
+        assert (0 <= compressionLevel && compressionLevel <= 9) || compressionLevel == Deflater.DEFAULT_COMPRESSION;
+        assert bandPixelCount > 0;
+
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.bandPixelCount = bandPixelCount;
+        this.isParallel = isParallel;
+    }
+
+    /**
+     * returns an encoder like this encoder, but deflating the bands one after another on the calling thread.
+     * its encodings equal this encoder's, as the bands are the same.
+     * e.g. code encoding on a bounded pool of its own uses this so that encoding does not use more threads.
+     */
+    public PngEncoder sequential() {return new PngEncoder(compressionLevel, filter, bandPixelCount, false);}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ENCODING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the png encoding of the given non-null image.
+     */
+    public byte[] encode(Image image) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            encode(image, outputStream);
+        } catch (IOException e) {
+            throw new AssertionError("a byte array output stream does not throw", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * writes the png encoding of the given non-null image to `outputStream`, which is not closed.
+     */
+    public void encode(Image image, OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(image);
+        Objects.requireNonNull(outputStream);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int bandHeight = Math.max(1, bandPixelCount / width);
+        int bandCount = (height + bandHeight - 1) / bandHeight;
+        IntStream bandIndices = IntStream.range(0, bandCount);
+        List<Band> bands = (isParallel ? bandIndices.parallel() : bandIndices)
+                .mapToObj(band -> deflateBand(
+                        image,
+                        band * bandHeight,
+                        Math.min((band + 1) * bandHeight, height),
+                        band == bandCount - 1
+                ))
+                .toList();
+
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerStream = new DataOutputStream(header);
+        headerStream.writeInt(width);
+        headerStream.writeInt(height);
+        headerStream.writeByte(8); // bits per sample
+        headerStream.writeByte(2); // color type: rgb
+        headerStream.writeByte(0); // compression method: deflate
+        headerStream.writeByte(0); // filter method: adaptive
+        headerStream.writeByte(0); // interlace method: none
+        writeChunk(dataOutputStream, "IHDR", header.toByteArray());
+
+        // the zlib stream is split across one data chunk per band.
+        long adler = 1;
+        for (int i = 0; i < bandCount; i++) {
+            Band band = bands.get(i);
+            adler = combineAdlers(adler, band.adler(), band.length());
+            ByteArrayOutputStream data = new ByteArrayOutputStream(band.deflatedBytes().length + 6);
+            if (i == 0) {
+                data.write(getZlibHeader());
+            }
+            data.write(band.deflatedBytes());
+            if (i == bandCount - 1) {
+                new DataOutputStream(data).writeInt((int) adler);
+            }
+            writeChunk(dataOutputStream, "IDAT", data.toByteArray());
+        }
+        writeChunk(dataOutputStream, "IEND", new byte[0]);
+        dataOutputStream.flush();
+    }
+
+    /**
+     * returns the filtered and deflated rows in the range [fromY, toY).
+     * unless the band is the last, its deflate stream is flushed rather than finished.
+     */
+    private Band deflateBand(Image image, int fromY, int toY, boolean isLast) {
+        int width = image.getWidth();
+        int rowLength = 1 + BYTES_PER_PIXEL * width;
+        byte[] filteredBytes = new byte[(toY - fromY) * rowLength];
+        byte[] previousRow = new byte[BYTES_PER_PIXEL * width];
+        byte[] row = new byte[BYTES_PER_PIXEL * width];
+        if (fromY > 0) {
+            toBytes(image.getRowRGB(fromY - 1), previousRow);
+        }
+        for (int y = fromY; y < toY; y++) {
+            toBytes(image.getRowRGB(y), row);
+            int offset = (y - fromY) * rowLength;
+            filteredBytes[offset] = filter.getType();
+            filterRow(row, previousRow, filteredBytes, offset + 1);
+            byte[] swap = previousRow;
+            previousRow = row;
+            row = swap;
+        }
+
+        Adler32 adler32 = new Adler32();
+        adler32.update(filteredBytes);
+
+        Deflater deflater = new Deflater(compressionLevel, true);
+        ByteArrayOutputStream deflatedBytes = new ByteArrayOutputStream(filteredBytes.length / 4 + 64);
+        byte[] buffer = new byte[1 << 16];
+        try {
+            deflater.setInput(filteredBytes);
+            if (isLast) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflatedBytes.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    deflatedBytes.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new Band(deflatedBytes.toByteArray(), adler32.getValue(), filteredBytes.length);
+    }
+
+    /**
+     * writes the red, green and blue components of the packed rgb values `rgbs` into `bytes`.
+     */
+    private static void toBytes(int[] rgbs, byte[] bytes) {
+        for (int x = 0; x < rgbs.length; x++) {
+            int rgb = rgbs[x];
+            bytes[BYTES_PER_PIXEL * x] = (byte) (rgb >> 16);
+            bytes[BYTES_PER_PIXEL * x + 1] = (byte) (rgb >> 8);
+            bytes[BYTES_PER_PIXEL * x + 2] = (byte) rgb;
+        }
+    }
+
+    /**
+     * writes `row` filtered with this encoder's filter into `out`, starting at `offset`.
+     * `previousRow` is the row above `row`, which is all zeros for the top-most row.
+     */
+    private void filterRow(byte[] row, byte[] previousRow, byte[] out, int offset) {
+        for (int i = 0; i < row.length; i++) {
+            int left = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            int up = previousRow[i] & 0xFF;
+            int upLeft = i >= BYTES_PER_PIXEL ? previousRow[i - BYTES_PER_PIXEL] & 0xFF : 0;
+            int prediction = switch (filter) {
+                case NONE -> 0;
+                case SUB -> left;
+                case UP -> up;
+                case AVERAGE -> (left + up) >>> 1;
+                case PAETH -> getPaethPrediction(left, up, upLeft);
+            };
+            out[offset + i] = (byte) (row[i] - prediction);
+        }
+    }
+
+    /**
+     * returns whichever of `left`, `up` and `upLeft` is closest to `left + up - upLeft`, preferring them in that order.
+     */
+    private static int getPaethPrediction(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int leftDistance = Math.abs(estimate - left);
+        int upDistance = Math.abs(estimate - up);
+        int upLeftDistance = Math.abs(estimate - upLeft);
+        if (leftDistance <= upDistance && leftDistance <= upLeftDistance) return left;
+        if (upDistance <= upLeftDistance) return up;
+        return upLeft;
+    }
+
+    /**
+     * returns the two byte zlib header of a deflate stream with a 32 kib window and this encoder's level.
+     */
+    private byte[] getZlibHeader() {
+        int compressionMethodAndFlags = 0x78;
+        int levelFlag;
+        if (compressionLevel == Deflater.DEFAULT_COMPRESSION) {
+            levelFlag = 2;
+        } else if (compressionLevel <= 1) {
+            levelFlag = 0;
+        } else if (compressionLevel <= 5) {
+            levelFlag = 1;
+        } else if (compressionLevel == 6) {
+            levelFlag = 2;
+        } else {
+            levelFlag = 3;
+        }
+        int flags = levelFlag << 6;
+        // the header, read as a big-endian number, must be a multiple of 31.
+        flags += 31 - (compressionMethodAndFlags * 256 + flags) % 31;
+        return new byte[]{(byte) compressionMethodAndFlags, (byte) flags};
+    }
+
+    /**
+     * returns the adler-32 checksum of the concatenation of two byte sequences,
+     * given their checksums and the length of the second, as zlib's `adler32_combine` does.
+     */
+    static long combineAdlers(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    private static void writeChunk(DataOutputStream outputStream, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc32 = new CRC32();
+        crc32.update(typeBytes);
+        crc32.update(data);
+        outputStream.writeInt(data.length);
+        outputStream.write(typeBytes);
+        outputStream.write(data);
+        outputStream.writeInt((int) crc32.getValue());
+    }
+}
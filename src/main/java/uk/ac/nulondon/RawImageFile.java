@@ -0,0 +1,208 @@
+package uk.ac.nulondon;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * a class representing an image stored in a raw file, which is read and written through memory mapping.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * a raw file is a header followed by the packed rgb values of the pixels, all as little-endian 32 bit integers.
+ * the header holds a magic number, the format version, the width, the height and whether the pixels are stored
+ * row by row, and is padded to `HEADER_LENGTH` bytes.
+ * <br><br>
+ * the pixels are stored line by line in the same order as the image stores them, i.e. column by column unless
+ * the image is a transpose. thus writing an image copies each of its line arrays in bulk, and reading a file back
+ * copies each line in bulk into a new array, without any decoding.
+ * <br><br>
+ * an opened file's pixels are read straight from the mapping, thus they can be accessed without reading the whole
+ * file onto the heap. a mapping is released when its raw image file is garbage collected.
+ */
+public class RawImageFile implements PixelSource {
+    public static final String EXTENSION = ".nuraw";
+    public static final int HEADER_LENGTH = 32;
+
+    private static final int MAGIC_NUMBER = 0x5752554E; // "NURW" in little-endian order.
+    private static final int VERSION = 1;
+    /**
+     * a single mapping covers at most this many bytes, thus larger files are mapped in regions of whole lines.
+     */
+    private static final long MAX_REGION_LENGTH = Integer.MAX_VALUE & ~7L;
+
+    private final int width;
+    private final int height;
+    private final boolean isTransposed;
+    private final int lineLength;
+    private final int linesPerRegion;
+    /**
+     * `regions[r]` holds the lines in the range [r * linesPerRegion, (r + 1) * linesPerRegion).
+     */
+    private final IntBuffer[] regions;
+
+    private RawImageFile(int width, int height, boolean isTransposed, IntBuffer[] regions, int linesPerRegion) {
+        this.width = width;
+        this.height = height;
+        this.isTransposed = isTransposed;
+        this.lineLength = isTransposed ? width : height;
+        this.regions = regions;
+        this.linesPerRegion = linesPerRegion;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // WRITING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * writes the given non-null image to a raw file at `path`, replacing any existing file.
+     */
+    public static void write(Image image, Path path) throws IOException {
+        Objects.requireNonNull(image);
+        Objects.requireNonNull(path);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean isTransposed = image.isTransposed();
+        int lineCount = isTransposed ? height : width;
+        int lineLength = isTransposed ? width : height;
+        try (FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        )) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN)
+                  .putInt(MAGIC_NUMBER)
+                  .putInt(VERSION)
+                  .putInt(width)
+                  .putInt(height)
+                  .putInt(isTransposed ? 1 : 0);
+
+            IntBuffer[] regions = mapRegions(channel, FileChannel.MapMode.READ_WRITE, lineCount, lineLength);
+            int linesPerRegion = getLinesPerRegion(lineLength);
+            for (int i = 0; i < lineCount; i++) {
+                int[] line = isTransposed ? image.getRowRGB(i) : image.getColumnRGB(i);
+                regions[i / linesPerRegion].put((i % linesPerRegion) * lineLength, line);
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // READING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns the image stored in the raw file at `path`.
+     */
+    public static Image read(Path path) throws IOException {
+        return open(path).toImage();
+    }
+
+    /**
+     * maps the raw file at `path` without reading its pixels.
+     * if the file is not a raw file, an exception is thrown.
+     */
+    public static RawImageFile open(Path path) throws IOException {
+        Objects.requireNonNull(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) throw new IOException(path + " is too short to be a raw image file");
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC_NUMBER) throw new IOException(path + " is not a raw image file");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(path + " has the unsupported version " + version);
+
+            int width = header.getInt();
+            int height = header.getInt();
+            boolean isTransposed = header.getInt() != 0;
+            if (width <= 0 || height <= 0) throw new IOException(path + " has an invalid size");
+            int lineCount = isTransposed ? height : width;
+            int lineLength = isTransposed ? width : height;
+            long expectedSize = HEADER_LENGTH + 4L * lineCount * lineLength;
+            if (channel.size() != expectedSize) {
+                throw new IOException(path + " should be " + expectedSize + " bytes long, but is " + channel.size());
+            }
+
+            IntBuffer[] regions = mapRegions(channel, FileChannel.MapMode.READ_ONLY, lineCount, lineLength);
+            return new RawImageFile(width, height, isTransposed, regions, getLinesPerRegion(lineLength));
+        }
+    }
+
+    /**
+     * returns a new image holding this file's pixels.
+     * each line is copied in bulk from the mapping into a new array, thus nothing is decoded.
+     */
+    public Image toImage() {
+        int lineCount = isTransposed ? height : width;
+        int[][] lines = new int[lineCount][lineLength];
+        for (int i = 0; i < lineCount; i++) {
+            regions[i / linesPerRegion].get((i % linesPerRegion) * lineLength, lines[i]);
+        }
+        return isTransposed ? Image.fromRowRGBs(lines) : Image.fromColumnRGBs(lines);
+    }
+
+    /**
+     * returns the packed rgb value of the pixel at (x,y), read from the mapping.
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    @Override
+    public int getRGBAt(int x, int y) {
+        assert 0 <= x && x < width;
+        assert 0 <= y && y < height;
+
+        int i = isTransposed ? y : x;
+        int j = isTransposed ? x : y;
+        return regions[i / linesPerRegion].get((i % linesPerRegion) * lineLength + j);
+    }
+
+    @Override
+    public int getWidth() {return width;}
+
+    @Override
+    public int getHeight() {return height;}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // MAPPING
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int getLinesPerRegion(int lineLength) {
+        long lineBytes = 4L * lineLength;
+        assert lineBytes <= MAX_REGION_LENGTH;
+
+        return (int) Math.min(MAX_REGION_LENGTH / lineBytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * maps the pixels after the header in regions of whole lines, each viewed as little-endian integers.
+     */
+    private static IntBuffer[] mapRegions(
+            FileChannel channel,
+            FileChannel.MapMode mapMode,
+            int lineCount,
+            int lineLength
+    ) throws IOException {
+        int linesPerRegion = getLinesPerRegion(lineLength);
+        int regionCount = (lineCount + linesPerRegion - 1) / linesPerRegion;
+        IntBuffer[] regions = new IntBuffer[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            int regionLineCount = Math.min(linesPerRegion, lineCount - r * linesPerRegion);
+            long position = HEADER_LENGTH + 4L * r * linesPerRegion * lineLength;
+            long length = 4L * regionLineCount * lineLength;
+            regions[r] = channel.map(mapMode, position, length)
+                                .order(ByteOrder.LITTLE_ENDIAN)
+                                .asIntBuffer();
+        }
+        return regions;
+    }
+}
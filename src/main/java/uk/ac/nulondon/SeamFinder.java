@@ -0,0 +1,352 @@
+package uk.ac.nulondon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * finds minimum energy seams.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * a vertical seam is a path of pixels from the top-most row to the bottom-most row with one pixel per row,
+ * in which the pixels of consecutive rows are in the same column or in adjacent columns.
+ * <br><br>
+ * a vertical seam is represented by an array whose y'th element is the x of the seam's pixel in the y'th row.
+ * <br><br>
+ * the energy of a seam is the sum of the energies of its pixels.
+ */
+public class SeamFinder {
+    private static final byte FROM_LEFT = -1;
+    private static final byte FROM_ABOVE = 0;
+    private static final byte FROM_RIGHT = 1;
+
+    /**
+     * a streamed image's directions are spilled to a temporary file if they take more than this many bytes.
+     */
+    public static final long DEFAULT_MAX_IN_MEMORY_DIRECTION_BYTES = 64L << 20;
+
+    private SeamFinder() {}
+
+    /**
+     * returns a vertical seam of minimum energy in the given non-null energy map.
+     * <br><br>
+     * the minimum energy of a seam ending at (x,y) is the pixel's energy plus the minimum energy of a seam
+     * ending at (x-1,y-1), (x,y-1) or (x+1,y-1). thus the minimum energies of every row are computed from those of
+     * the row above, remembering which of the three pixels above each pixel the seam came from.
+     * if several seams have the minimum energy, the one whose bottom pixel is left-most is returned.
+     */
+    public static int[] findVerticalSeam(EnergyMap energyMap) {
+        Objects.requireNonNull(energyMap);
+
+        int width = energyMap.getWidth();
+        int stride = energyMap.getStride();
+        double[] energies = energyMap.getEnergies();
+        return findVerticalSeam(
+                width,
+                energyMap.getHeight(),
+                (y, energyRow) -> System.arraycopy(energies, y * stride, energyRow, 0, width)
+        );
+    }
+
+    /**
+     * returns a vertical seam of minimum energy in the image provided by the given non-null pixel source,
+     * which is the seam `findVerticalSeam(EnergyMap)` returns for the image's energy map.
+     * <br><br>
+     * the rows are read one at a time, and only three rows of brightnesses and one row of energies are stored,
+     * thus the image need not fit in memory. the directions the seams came from are stored for every pixel,
+     * which takes a quarter of a byte per pixel. if they take more than `DEFAULT_MAX_IN_MEMORY_DIRECTION_BYTES`,
+     * they are spilled to a temporary file, which is deleted once the seam is found.
+     * if the temporary file cannot be written or read, an `UncheckedIOException` is thrown.
+     */
+    public static int[] findVerticalSeam(PixelSource pixelSource) {
+        return findVerticalSeam(pixelSource, DEFAULT_MAX_IN_MEMORY_DIRECTION_BYTES);
+    }
+
+    /**
+     * returns `findVerticalSeam(pixelSource)`, spilling the directions to a temporary file if they take more than
+     * `maxInMemoryDirectionBytes`.
+     */
+    static int[] findVerticalSeam(PixelSource pixelSource, long maxInMemoryDirectionBytes) {
+        Objects.requireNonNull(pixelSource);
+
+        int width = pixelSource.getWidth();
+        int height = pixelSource.getHeight();
+        int[] rgbRow = new int[width];
+        // the brightnesses of the rows above, of and below the row whose energies are computed next.
+        double[][] brightnessRows = new double[3][width];
+        readBrightnessRow(pixelSource, 0, rgbRow, brightnessRows[1]);
+        readBrightnessRow(pixelSource, Math.min(1, height - 1), rgbRow, brightnessRows[2]);
+        System.arraycopy(brightnessRows[1], 0, brightnessRows[0], 0, width);
+        boolean isSpilled = (long) getPackedRowLength(width) * height > maxInMemoryDirectionBytes;
+        DirectionRows directionRows = isSpilled ? new SpilledDirectionRows(width) : new InMemoryDirectionRows(height);
+        try (directionRows) {
+            return findVerticalSeam(width, height, directionRows, (y, energyRow) -> {
+                EnergyMap.computeEnergyRow(brightnessRows[0], brightnessRows[1], brightnessRows[2], width, energyRow);
+                if (y + 1 < height) {
+                    // the rows shift up, and the row below the next row is read into the freed array.
+                    double[] freedRow = brightnessRows[0];
+                    brightnessRows[0] = brightnessRows[1];
+                    brightnessRows[1] = brightnessRows[2];
+                    brightnessRows[2] = freedRow;
+                    readBrightnessRow(pixelSource, Math.min(y + 2, height - 1), rgbRow, freedRow);
+                }
+            });
+        }
+    }
+
+    private static void readBrightnessRow(PixelSource pixelSource, int y, int[] rgbRow, double[] brightnessRow) {
+        pixelSource.getRowRGB(y, rgbRow);
+        for (int x = 0; x < brightnessRow.length; x++) {
+            brightnessRow[x] = EnergyMap.getBrightnessOf(rgbRow[x]);
+        }
+    }
+
+    /**
+     * provides the energies of an image's rows in order from the top-most row to the bottom-most row.
+     */
+    @FunctionalInterface
+    private interface EnergyRows {
+        /**
+         * writes the energies of the y'th row into `energyRow`.
+         */
+        void copyEnergyRow(int y, double[] energyRow);
+    }
+
+    /**
+     * stores the direction of the pixel above each pixel that the seam ending at the pixel came from.
+     * <br><br>
+     * a direction is one of three values, thus it is packed into two bits, and a row's directions are packed four to
+     * a byte. the rows are put in order from the top, then read in any order.
+     */
+    private interface DirectionRows extends AutoCloseable {
+        /**
+         * stores the packed directions of the y'th row. `packedRow` may be reused after this returns.
+         */
+        void putRow(int y, byte[] packedRow);
+
+        /**
+         * returns the packed directions of the y'th row which include the direction of the pixel at (x,y).
+         */
+        byte getPackedDirections(int x, int y);
+
+        @Override
+        void close();
+    }
+
+    private static class InMemoryDirectionRows implements DirectionRows {
+        private final byte[][] packedRows;
+
+        InMemoryDirectionRows(int height) {
+            this.packedRows = new byte[height][];
+        }
+
+        @Override
+        public void putRow(int y, byte[] packedRow) {packedRows[y] = packedRow.clone();}
+
+        @Override
+        public byte getPackedDirections(int x, int y) {return packedRows[y][x / 4];}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * stores the rows in a temporary file, which is deleted when closed.
+     * the rows are written through a buffer in order, then single bytes are read back while the seam is traced.
+     */
+    private static class SpilledDirectionRows implements DirectionRows {
+        private static final int BUFFER_LENGTH = 1 << 20;
+
+        private final FileChannel channel;
+        private final int packedRowLength;
+        private final ByteBuffer writeBuffer;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(1);
+        private boolean isFlushed;
+
+        SpilledDirectionRows(int width) {
+            this.packedRowLength = getPackedRowLength(width);
+            this.writeBuffer = ByteBuffer.allocate(Math.max(BUFFER_LENGTH, packedRowLength));
+            try {
+                Path path = Files.createTempFile("seam-directions-", ".tmp");
+                this.channel = FileChannel.open(
+                        path,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to create a file for seam directions", e);
+            }
+        }
+
+        @Override
+        public void putRow(int y, byte[] packedRow) {
+            assert !isFlushed;
+
+            if (writeBuffer.remaining() < packedRowLength) {
+                flush();
+            }
+            writeBuffer.put(packedRow, 0, packedRowLength);
+        }
+
+        @Override
+        public byte getPackedDirections(int x, int y) {
+            if (!isFlushed) {
+                flush();
+                isFlushed = true;
+            }
+            long position = (long) y * packedRowLength + x / 4;
+            readBuffer.clear();
+            try {
+                while (readBuffer.hasRemaining()) {
+                    if (channel.read(readBuffer, position) < 0) throw new IOException("seam directions are missing");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to read seam directions", e);
+            }
+            return readBuffer.get(0);
+        }
+
+        private void flush() {
+            writeBuffer.flip();
+            try {
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to write seam directions", e);
+            }
+            writeBuffer.clear();
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to delete seam directions", e);
+            }
+        }
+    }
+
+    private static int getPackedRowLength(int width) {return (width + 3) / 4;}
+
+    private static int[] findVerticalSeam(int width, int height, EnergyRows energyRows) {
+        try (DirectionRows directionRows = new InMemoryDirectionRows(height)) {
+            return findVerticalSeam(width, height, directionRows, energyRows);
+        }
+    }
+
+    private static int[] findVerticalSeam(int width, int height, DirectionRows directionRows, EnergyRows energyRows) {
+        // each direction is stored as its value plus 1, i.e. 0, 1 or 2, in the two bits at `2 * (x % 4)`.
+        byte[] packedRow = new byte[getPackedRowLength(width)];
+        // the top-most row has no pixels above it, thus its directions are never read.
+        directionRows.putRow(0, packedRow);
+        double[] energyRow = new double[width];
+        double[] previousCosts = new double[width];
+        double[] costs = new double[width];
+        energyRows.copyEnergyRow(0, previousCosts);
+
+        for (int y = 1; y < height; y++) {
+            energyRows.copyEnergyRow(y, energyRow);
+            Arrays.fill(packedRow, (byte) 0);
+            for (int x = 0; x < width; x++) {
+                double minCost = previousCosts[x];
+                byte direction = FROM_ABOVE;
+                if (x > 0 && previousCosts[x - 1] < minCost) {
+                    minCost = previousCosts[x - 1];
+                    direction = FROM_LEFT;
+                }
+                if (x < width - 1 && previousCosts[x + 1] < minCost) {
+                    minCost = previousCosts[x + 1];
+                    direction = FROM_RIGHT;
+                }
+                costs[x] = minCost + energyRow[x];
+                packedRow[x / 4] |= (byte) ((direction + 1) << (2 * (x % 4)));
+            }
+            directionRows.putRow(y, packedRow);
+            double[] swap = previousCosts;
+            previousCosts = costs;
+            costs = swap;
+        }
+
+        int[] seam = new int[height];
+        int x = 0;
+        for (int candidateX = 1; candidateX < width; candidateX++) {
+            if (previousCosts[candidateX] < previousCosts[x]) {
+                x = candidateX;
+            }
+        }
+        for (int y = height - 1; y >= 0; y--) {
+            seam[y] = x;
+            if (y == 0) break;
+            int packedDirections = directionRows.getPackedDirections(x, y);
+            x += ((packedDirections >> (2 * (x % 4))) & 0b11) - 1;
+        }
+        return seam;
+    }
+
+    /**
+     * returns `count` vertical seams, found by repeatedly finding a vertical seam of minimum energy and removing it
+     * from the given non-null energy map. thus the energy map is left as though every seam was removed.
+     * `count` must be less than the energy map's width.
+     * <br><br>
+     * every seam is given in the coordinates of the energy map before any seam was removed,
+     * i.e. `seams[i][y]` is the original x of the pixel removed from the y'th row by the i'th seam.
+     * thus in each row, the seams' x's are distinct, and the seams can be passed to `Image.removeSeams`
+     * to remove all of them from the energy map's image in a single pass.
+     */
+    public static int[][] findVerticalSeams(EnergyMap energyMap, int count) {
+        Objects.requireNonNull(energyMap);
+        assert 0 <= count && count < energyMap.getWidth();
+
+        int width = energyMap.getWidth();
+        int height = energyMap.getHeight();
+        // `originalXs[y * width + x]` is the original x of the pixel now at (x,y).
+        // it is shifted in the same way as the energy map's rows when a seam is removed.
+        int[] originalXs = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                originalXs[y * width + x] = x;
+            }
+        }
+
+        int[][] seams = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int[] seam = findVerticalSeam(energyMap);
+            int newWidth = energyMap.getWidth() - 1;
+            int[] originalSeam = new int[height];
+            for (int y = 0; y < height; y++) {
+                int rowStart = y * width;
+                int x = seam[y];
+                originalSeam[y] = originalXs[rowStart + x];
+                System.arraycopy(originalXs, rowStart + x + 1, originalXs, rowStart + x, newWidth - x);
+            }
+            energyMap.removeSeam(seam);
+            seams[i] = originalSeam;
+        }
+        return seams;
+    }
+
+    /**
+     * returns the energy of the vertical seam `seam` in the given non-null energy map.
+     */
+    public static double getSeamEnergy(EnergyMap energyMap, int[] seam) {
+        Objects.requireNonNull(energyMap);
+        Objects.requireNonNull(seam);
+        assert seam.length == energyMap.getHeight();
+
+        double seamEnergy = 0;
+        for (int y = 0; y < seam.length; y++) {
+            seamEnergy += energyMap.getEnergyAt(seam[y], y);
+        }
+        return seamEnergy;
+    }
+}
@@ -0,0 +1,102 @@
+package uk.ac.nulondon;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * a class recording the order in which the pixels of an image are removed when it is carved down to one column.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the image is carved by repeatedly removing a vertical seam of minimum energy, as by `SeamFinder.findVerticalSeams`.
+ * the pixel removed by the i'th seam has the removal step i. the pixel remaining in each row has the removal step
+ * `width - 1`. thus the removal steps of every row are a permutation of [0, width).
+ * <br><br>
+ * carving the image to a width w removes the seams with the steps [0, width - w). thus the carved image consists of
+ * the pixels whose removal step is at least `width - w`, in their original order. once the removal steps are known,
+ * the image can be carved to any width by a single pass over its pixels, without computing energies or seams.
+ */
+public class SeamRemovalOrder {
+    private final Image image;
+    /**
+     * the removal step of the pixel at (x,y) is stored at index `y * width + x`.
+     */
+    private final int[] removalSteps;
+    private final int width;
+    private final int height;
+
+    private SeamRemovalOrder(Image image, int[] removalSteps) {
+        this.image = image;
+        this.removalSteps = removalSteps;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    /**
+     * returns the removal order of the given non-null image.
+     * this carves the image down to one column, thus it takes as long as removing every seam but one.
+     */
+    public static SeamRemovalOrder of(Image image) {
+        Objects.requireNonNull(image);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] removalSteps = new int[width * height];
+        Arrays.fill(removalSteps, width - 1);
+        // the seams are in the image's coordinates, thus each seam's pixels can be labelled directly.
+        int[][] seams = SeamFinder.findVerticalSeams(EnergyMap.of(image), width - 1);
+        for (int step = 0; step < seams.length; step++) {
+            int[] seam = seams[step];
+            for (int y = 0; y < height; y++) {
+                removalSteps[y * width + seam[y]] = step;
+            }
+        }
+        return new SeamRemovalOrder(image, removalSteps);
+    }
+
+    /**
+     * returns the image carved to `newWidth` columns.
+     * i.e. returns the image without the pixels of the first `width - newWidth` seams removed from it.
+     * `newWidth` must be in the range [1, width].
+     */
+    public Image retarget(int newWidth) {
+        assert 1 <= newWidth && newWidth <= width;
+
+        int minKeptStep = width - newWidth;
+        int[][] newRows = new int[height][newWidth];
+        for (int y = 0; y < height; y++) {
+            int[] row = image.getRowRGB(y);
+            int[] newRow = newRows[y];
+            int rowStart = y * width;
+            int newX = 0;
+            for (int x = 0; x < width; x++) {
+                if (removalSteps[rowStart + x] >= minKeptStep) {
+                    newRow[newX++] = row[x];
+                }
+            }
+            assert newX == newWidth;
+        }
+        return Image.fromRowRGBs(newRows);
+    }
+
+    /**
+     * returns the step at which the pixel at (x,y) is removed.
+     * x must be in the range [0, width).
+     * y must be in the range [0, height).
+     */
+    public int getRemovalStepAt(int x, int y) {
+        assert 0 <= x && x < width;
+        assert 0 <= y && y < height;
+
+        return removalSteps[y * width + x];
+    }
+
+    /**
+     * returns the image whose removal order this is.
+     */
+    public Image getImage() {return image;}
+
+    public int getWidth() {return width;}
+
+    public int getHeight() {return height;}
+}
@@ -0,0 +1,205 @@
+package uk.ac.nulondon;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static uk.ac.nulondon.DiskUtilities.writeToDisk;
+
+/**
+ * writes snapshots of images to disk on a background thread, so that the thread submitting them never waits
+ * for an image to be encoded.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * images are immutable, thus a submitted image is only referenced, and is converted and encoded on the writer thread.
+ * <br><br>
+ * at most `capacity` snapshots wait to be written. if a snapshot is submitted while that many are waiting,
+ * the oldest waiting snapshot is superseded and never written. thus if snapshots are submitted faster than they
+ * are encoded, intermediate snapshots are skipped, but the latest snapshot is always written.
+ * <br><br>
+ * the first failure to write a snapshot is thrown by the next call to `flush` or `close`.
+ */
+public class SnapshotWriter implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1;
+
+    /**
+     * writes an image to a file path.
+     */
+    @FunctionalInterface
+    public interface Encoder {
+        void write(Image image, String filePath) throws IOException;
+    }
+
+    private record Snapshot(Image image, String filePath) {}
+
+    private final Encoder encoder;
+    private final int capacity;
+    private final ArrayDeque<Snapshot> waitingSnapshots = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * signalled when a snapshot is submitted or this writer is closed.
+     */
+    private final Condition isWorkAvailable = lock.newCondition();
+    /**
+     * signalled when a snapshot has been written.
+     */
+    private final Condition isSnapshotWritten = lock.newCondition();
+    private final Thread thread;
+    private boolean isWriting;
+    private boolean isClosed;
+    private int supersededCount;
+    private IOException failure;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * constructs a writer that writes snapshots as quickly compressed png files, with the default capacity.
+     */
+    public SnapshotWriter() {
+        this(DEFAULT_CAPACITY, (image, filePath) -> writeToDisk(image, filePath, PngEncoder.FAST));
+    }
+
+    /**
+     * constructs a writer that writes snapshots with `encoder`, with at most `capacity` snapshots waiting.
+     * `capacity` must be positive.
+     */
+    public SnapshotWriter(int capacity, Encoder encoder) {
+        Objects.requireNonNull(encoder);
+        assert capacity > 0;
+
+        this.capacity = capacity;
+        this.encoder = encoder;
+        this.thread = new Thread(this::writeSnapshots, "snapshot-writer");
+        // a writer that is never closed must not keep the jvm alive.
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // SUBMISSION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * schedules `image` to be written to `filePath`, superseding the oldest waiting snapshot if the writer is full.
+     * this never waits for a snapshot to be written. this writer must not be closed.
+     */
+    public void submit(Image image, String filePath) {
+        Objects.requireNonNull(image);
+        Objects.requireNonNull(filePath);
+
+        lock.lock();
+        try {
+            assert !isClosed;
+
+            if (waitingSnapshots.size() == capacity) {
+                waitingSnapshots.pollFirst();
+                supersededCount++;
+            }
+            waitingSnapshots.addLast(new Snapshot(image, filePath));
+            isWorkAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * waits until every submitted snapshot has been written or superseded.
+     * throws the first failure to write a snapshot, if any.
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            while (!waitingSnapshots.isEmpty() || isWriting) {
+                isSnapshotWritten.await();
+            }
+            if (failure != null) throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while flushing snapshots");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * flushes this writer, then stops its thread.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                isClosed = true;
+                isWorkAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * returns the number of snapshots that were superseded before being written.
+     */
+    public int getSupersededCount() {
+        lock.lock();
+        try {
+            return supersededCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // WRITING
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * writes snapshots as they are submitted, until this writer is closed.
+     */
+    private void writeSnapshots() {
+        while (true) {
+            Snapshot snapshot;
+            lock.lock();
+            try {
+                while (waitingSnapshots.isEmpty() && !isClosed) {
+                    isWorkAvailable.awaitUninterruptibly();
+                }
+                if (waitingSnapshots.isEmpty()) return;
+
+                snapshot = waitingSnapshots.pollFirst();
+                isWriting = true;
+            } finally {
+                lock.unlock();
+            }
+
+            // the snapshot is encoded without holding the lock, thus submissions never wait for it.
+            IOException exception = null;
+            try {
+                encoder.write(snapshot.image(), snapshot.filePath());
+            } catch (IOException e) {
+                exception = e;
+            } catch (RuntimeException e) {
+                exception = new IOException("failed to write " + snapshot.filePath(), e);
+            }
+
+            lock.lock();
+            try {
+                isWriting = false;
+                if (failure == null) {
+                    failure = exception;
+                }
+                isSnapshotWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
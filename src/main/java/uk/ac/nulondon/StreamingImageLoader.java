@@ -0,0 +1,314 @@
+package uk.ac.nulondon;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntConsumer;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import static uk.ac.nulondon.DiskUtilities.fileExists;
+
+/**
+ * a class loading an image and computing its energy map at the same time.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the image is decoded on a second thread. whenever a band of `bandHeight` rows is decoded, it is handed to the
+ * loading thread, which computes the band's brightnesses and energies while the next band is decoded.
+ * thus the energy map is ready shortly after the last band is decoded, rather than a whole computation later.
+ * <br><br>
+ * the image is decoded by a single read, whose rows are observed as they are decoded through an
+ * `IIOReadUpdateListener`. reading each band with `ImageReadParam.setSourceRegion` would instead decode every
+ * row above the band again, as e.g. png rows can only be decoded in order.
+ * <br><br>
+ * interlaced and progressive images are decoded in several passes, thus their rows are only final once the read
+ * finishes. they are handed over as a single band, as are images whose reader reports no progress.
+ * the number of passes is read from the image's standard metadata, as the png and jpeg readers report starting a
+ * pass, of an unbounded number of passes, even for images decoded in one pass.
+ */
+public class StreamingImageLoader {
+    public static final int DEFAULT_BAND_HEIGHT = 64;
+
+    /**
+     * handed over by the decoding thread if decoding fails.
+     */
+    private static final int DECODING_FAILED = -1;
+
+    /**
+     * an image and its energy map.
+     */
+    public record LoadedImage(Image image, EnergyMap energyMap) {}
+
+    private StreamingImageLoader() {}
+
+    /**
+     * returns the image at `filePath` with its energy map, handing over bands of the default height.
+     */
+    public static LoadedImage load(String filePath) throws IOException {
+        return load(filePath, DEFAULT_BAND_HEIGHT);
+    }
+
+    /**
+     * returns the image at `filePath` with its energy map, handing over bands of `bandHeight` rows.
+     * raw image files and tile files are read rather than decoded, thus their energy maps are computed after they
+     * are read.
+     * `bandHeight` must be positive.
+     */
+    public static LoadedImage load(String filePath, int bandHeight) throws IOException {
+        return load(filePath, bandHeight, computedRowCount -> {});
+    }
+
+    /**
+     * returns the image at `filePath` with its energy map, handing over bands of `bandHeight` rows, and passes the
+     * number of rows whose energies are computed so far to `bandListener` after each band handed over is computed.
+     */
+    static LoadedImage load(String filePath, int bandHeight, IntConsumer bandListener) throws IOException {
+        assert fileExists(filePath);
+        assert bandHeight > 0;
+        Objects.requireNonNull(bandListener);
+
+        if (filePath.endsWith(RawImageFile.EXTENSION) || filePath.endsWith(TiledImage.EXTENSION)) {
+            Image image = Image.fromFilePath(filePath);
+            return new LoadedImage(image, EnergyMap.of(image));
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(filePath))) {
+            if (input == null) throw new IOException("failed to open " + filePath);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) throw new IOException(filePath + " is not in a supported image format");
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return load(reader, bandHeight, bandListener);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static LoadedImage load(ImageReader reader, int bandHeight, IntConsumer bandListener)
+            throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int[][] rows = new int[height][width];
+        // holds the number of rows decoded so far, each time a band is decoded.
+        // handing over through the queue makes the decoded rows visible to this thread.
+        BlockingQueue<Integer> decodedRowCounts = new LinkedBlockingQueue<>();
+        BandDecoder bandDecoder = new BandDecoder(reader, rows, bandHeight, decodedRowCounts);
+        Thread thread = new Thread(bandDecoder, "band-decoder");
+        thread.setDaemon(true);
+        thread.start();
+
+        EnergyMap energyMap = EnergyMap.ofSize(width, height);
+        int computedRowCount = 0;
+        try {
+            while (computedRowCount < height) {
+                int decodedRowCount = decodedRowCounts.take();
+                if (decodedRowCount == DECODING_FAILED) throw bandDecoder.failure;
+                energyMap.computeBand(rows, computedRowCount, decodedRowCount);
+                computedRowCount = decodedRowCount;
+                bandListener.accept(computedRowCount);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while loading an image");
+        } finally {
+            // the caller disposes the reader and closes its input,
+            // thus the decoding thread must have stopped using them before this returns.
+            if (computedRowCount < height) {
+                reader.abort();
+            }
+            joinUninterruptibly(thread);
+        }
+        return new LoadedImage(Image.fromRowRGBs(rows), energyMap);
+    }
+
+    /**
+     * waits for `thread` to terminate, even if the current thread is interrupted, whose interrupt status is kept.
+     */
+    private static void joinUninterruptibly(Thread thread) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * decodes an image on its own thread, copying each decoded row into `rows`,
+     * and hands over the number of rows decoded so far whenever a band is decoded.
+     */
+    private static class BandDecoder implements Runnable, IIOReadUpdateListener {
+        private final ImageReader reader;
+        private final int[][] rows;
+        private final int width;
+        private final int bandHeight;
+        private final BlockingQueue<Integer> decodedRowCounts;
+        private int decodedRowCount;
+        private int handedOverRowCount;
+        /**
+         * true if the image is decoded in several passes, thus its rows are not final until the read finishes.
+         */
+        private boolean isDecodedInPasses;
+        /**
+         * read by the loading thread once `DECODING_FAILED` is handed over.
+         */
+        private IOException failure;
+
+        BandDecoder(ImageReader reader, int[][] rows, int bandHeight, BlockingQueue<Integer> decodedRowCounts) {
+            this.reader = reader;
+            this.rows = rows;
+            this.width = rows[0].length;
+            this.bandHeight = bandHeight;
+            this.decodedRowCounts = decodedRowCounts;
+        }
+
+        @Override
+        public void run() {
+            try {
+                isDecodedInPasses = isDecodedInPasses(reader);
+                reader.addIIOReadUpdateListener(this);
+                BufferedImage bufferedImage = reader.read(0);
+                // copies the rows the listener did not observe.
+                copyRows(bufferedImage, decodedRowCount, rows.length);
+                decodedRowCount = rows.length;
+                handOver();
+            } catch (IOException e) {
+                failure = e;
+                decodedRowCounts.add(DECODING_FAILED);
+            } catch (RuntimeException e) {
+                failure = new IOException("failed to decode an image", e);
+                decodedRowCounts.add(DECODING_FAILED);
+            }
+        }
+
+        /**
+         * returns false if the standard metadata of the image read by `reader` states that it is decoded in a single
+         * pass, i.e. that it is neither interlaced nor progressive, else true.
+         */
+        private static boolean isDecodedInPasses(ImageReader reader) throws IOException {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !metadata.isStandardMetadataFormatSupported()) return true;
+
+            Element tree = (Element) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+            NodeList nodes = tree.getElementsByTagName("NumProgressiveScans");
+            if (nodes.getLength() == 0) return true;
+            return !((Element) nodes.item(0)).getAttribute("value").equals("1");
+        }
+
+        private void copyRows(BufferedImage bufferedImage, int fromY, int toY) {
+            for (int y = fromY; y < toY; y++) {
+                int[] row = rows[y];
+                bufferedImage.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    row[x] = Image.toOpaque(row[x]);
+                }
+            }
+        }
+
+        private void handOver() {
+            if (decodedRowCount == handedOverRowCount) return;
+            handedOverRowCount = decodedRowCount;
+            decodedRowCounts.add(decodedRowCount);
+        }
+
+        @Override
+        public void passStarted(
+                ImageReader source,
+                BufferedImage theImage,
+                int pass,
+                int minPass,
+                int maxPass,
+                int minX,
+                int minY,
+                int periodX,
+                int periodY,
+                int[] bands
+        ) {
+            // the metadata may understate the passes, thus a pass after the first or skipping pixels stops handing
+            // over rows before the read finishes.
+            if (pass > 0 || periodX != 1 || periodY != 1) {
+                isDecodedInPasses = true;
+            }
+        }
+
+        @Override
+        public void imageUpdate(
+                ImageReader source,
+                BufferedImage theImage,
+                int minX,
+                int minY,
+                int width,
+                int height,
+                int periodX,
+                int periodY,
+                int[] bands
+        ) {
+            // only whole rows decoded in order, in a single pass, are final.
+            boolean areRowsFinal = !isDecodedInPasses
+                    && minX == 0 && width == this.width
+                    && periodX == 1 && periodY == 1
+                    && minY == decodedRowCount;
+            if (!areRowsFinal) return;
+
+            int toY = Math.min(minY + height, rows.length);
+            copyRows(theImage, minY, toY);
+            decodedRowCount = toY;
+            if (decodedRowCount - handedOverRowCount >= bandHeight) {
+                handOver();
+            }
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {}
+
+        @Override
+        public void thumbnailPassStarted(
+                ImageReader source,
+                BufferedImage theThumbnail,
+                int pass,
+                int minPass,
+                int maxPass,
+                int minX,
+                int minY,
+                int periodX,
+                int periodY,
+                int[] bands
+        ) {}
+
+        @Override
+        public void thumbnailUpdate(
+                ImageReader source,
+                BufferedImage theThumbnail,
+                int minX,
+                int minY,
+                int width,
+                int height,
+                int periodX,
+                int periodY,
+                int[] bands
+        ) {}
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {}
+    }
+}
@@ -0,0 +1,570 @@
+package uk.ac.nulondon;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * a class representing an immutable image stored on disk as square tiles, of which only a bounded number are held in
+ * memory at a time. thus it can represent images much larger than the heap.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * a tile file is a header followed by the tiles ordered row by row. each tile holds `tileSize * tileSize` packed rgb
+ * values ordered row by row, as little-endian 32 bit integers. tiles on the right and bottom borders are padded.
+ * <br><br>
+ * tiles are loaded on demand and kept in a least recently used cache, which holds as many tiles as fit in the memory
+ * budget. when the cache is full, loading a tile evicts the least recently used tile.
+ * <br><br>
+ * removing a column does not touch the tile file: the new image shares the tile file and cache with this image, and
+ * only maps its columns to the stored columns. removing a seam moves pixels between columns, thus it streams this
+ * image into a new tile file, which is either given or a temporary file deleted when the new image is closed.
+ * <br><br>
+ * `writeFromFilePath` writes an image file to a tile file band by band, thus images larger than the heap can be
+ * carved once written. `Image.fromFilePath` reads tile files too, but the image it returns is held in memory.
+ * <br><br>
+ * a tiled image is a `CarvableImage` like `Image`, thus e.g. `SeamFinder.findVerticalSeam(PixelSource)` finds its
+ * seams and `PixelSource.getEnergyRow(int, double[])` computes its energies row by row without holding the image
+ * in memory.
+ */
+public class TiledImage implements CarvableImage<TiledImage>, AutoCloseable {
+    public static final String EXTENSION = ".nutiles";
+    public static final int DEFAULT_TILE_SIZE = 256;
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    private static final int HEADER_LENGTH = 32;
+    private static final int MAGIC_NUMBER = 0x4C54554E; // "NUTL" in little-endian order.
+    private static final int VERSION = 1;
+
+    private final TileStore tileStore;
+    /**
+     * `storedXs[x]` is the x in the tile file of the x'th column, in ascending order.
+     */
+    private final int[] storedXs;
+
+    /**
+     * the tile file and the cache of its loaded tiles, which are shared by every image derived by removing columns.
+     */
+    private static class TileStore {
+        private final Path path;
+        private final FileChannel channel;
+        private final int storedWidth;
+        private final int height;
+        private final int tileSize;
+        private final int tileColumnCount;
+        private final int maxCachedTileCount;
+        private final long memoryBudget;
+        private final Map<Integer, int[]> cachedTiles;
+        private long loadedTileCount;
+
+        TileStore(Path path, FileChannel channel, int storedWidth, int height, int tileSize, long memoryBudget) {
+            this.path = path;
+            this.channel = channel;
+            this.storedWidth = storedWidth;
+            this.height = height;
+            this.tileSize = tileSize;
+            this.tileColumnCount = (storedWidth + tileSize - 1) / tileSize;
+            this.memoryBudget = memoryBudget;
+            this.maxCachedTileCount = (int) Math.max(1, Math.min(memoryBudget / getTileLength(), Integer.MAX_VALUE));
+            // an access ordered map iterates from the least recently used entry, which is evicted first.
+            this.cachedTiles = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > maxCachedTileCount;
+                }
+            };
+        }
+
+        /**
+         * returns the length in bytes of a tile.
+         */
+        long getTileLength() {return 4L * tileSize * tileSize;}
+
+        /**
+         * returns the tile in the tileX'th column and tileY'th row of tiles, loading it if it is not cached.
+         * the returned tile must not be mutated.
+         */
+        synchronized int[] getTile(int tileX, int tileY) {
+            int tileIndex = tileY * tileColumnCount + tileX;
+            int[] tile = cachedTiles.get(tileIndex);
+            if (tile != null) return tile;
+
+            try {
+                tile = loadTile(tileIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to load a tile of " + path, e);
+            }
+            cachedTiles.put(tileIndex, tile);
+            loadedTileCount++;
+            return tile;
+        }
+
+        private int[] loadTile(int tileIndex) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) getTileLength()).order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_LENGTH + tileIndex * getTileLength();
+            while (buffer.hasRemaining()) {
+                int readCount = channel.read(buffer, position + buffer.position());
+                if (readCount < 0) throw new EOFException(path + " ends within a tile");
+            }
+            buffer.flip();
+            int[] tile = new int[tileSize * tileSize];
+            buffer.asIntBuffer().get(tile);
+            return tile;
+        }
+    }
+
+    private TiledImage(TileStore tileStore, int[] storedXs) {
+        this.tileStore = tileStore;
+        this.storedXs = storedXs;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * writes the pixels of the given non-null pixel source to a tile file at `path`, replacing any existing file,
+     * holding rows within the default memory budget. `tileSize` must be positive.
+     */
+    public static void write(PixelSource pixelSource, Path path, int tileSize) throws IOException {
+        write(pixelSource, path, tileSize, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * writes the pixels of the given non-null pixel source to a tile file at `path`, replacing any existing file.
+     * the pixels are read row by row, holding at most as many rows as fit in `memoryBudget` bytes, though at least one
+     * row and at most `tileSize` rows. `tileSize` and `memoryBudget` must be positive.
+     * <br><br>
+     * the held rows are written into each tile they cross at once, thus with `tileSize` rows held each tile is written
+     * whole, in order, and with fewer rows held each tile is written in several parts.
+     */
+    public static void write(PixelSource pixelSource, Path path, int tileSize, long memoryBudget) throws IOException {
+        Objects.requireNonNull(pixelSource);
+        Objects.requireNonNull(path);
+        assert tileSize > 0;
+        assert memoryBudget > 0;
+
+        int width = pixelSource.getWidth();
+        int height = pixelSource.getHeight();
+        int tileColumnCount = (width + tileSize - 1) / tileSize;
+        int tileRowCount = (height + tileSize - 1) / tileSize;
+        long tileLength = 4L * tileSize * tileSize;
+        int heldRowCount = (int) Math.max(1, Math.min(memoryBudget / (4L * width), tileSize));
+        try (FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC_NUMBER)
+                  .putInt(VERSION)
+                  .putInt(width)
+                  .putInt(height)
+                  .putInt(tileSize)
+                  .position(HEADER_LENGTH)
+                  .flip();
+            writeFully(channel, header, 0);
+
+            int[][] rows = new int[heldRowCount][width];
+            ByteBuffer tileBuffer = ByteBuffer.allocate(4 * heldRowCount * tileSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int tileY = 0; tileY < tileRowCount; tileY++) {
+                // the rows in the range [fromR, fromR + rowCount) of this row of tiles are held at once.
+                for (int fromR = 0; fromR < tileSize; fromR += heldRowCount) {
+                    int rowCount = Math.min(heldRowCount, tileSize - fromR);
+                    for (int r = 0; r < rowCount; r++) {
+                        int y = tileY * tileSize + fromR + r;
+                        if (y < height) {
+                            pixelSource.getRowRGB(y, rows[r]);
+                        } else {
+                            Arrays.fill(rows[r], 0);
+                        }
+                    }
+                    for (int tileX = 0; tileX < tileColumnCount; tileX++) {
+                        tileBuffer.clear();
+                        for (int r = 0; r < rowCount; r++) {
+                            for (int c = 0; c < tileSize; c++) {
+                                int x = tileX * tileSize + c;
+                                tileBuffer.putInt(x < width ? rows[r][x] : 0);
+                            }
+                        }
+                        tileBuffer.flip();
+                        long tilePosition = HEADER_LENGTH + ((long) tileY * tileColumnCount + tileX) * tileLength;
+                        writeFully(channel, tileBuffer, tilePosition + 4L * fromR * tileSize);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * writes the image at `filePath` to a tile file at `path`, replacing any existing file, without holding the whole
+     * image in memory. raw image files are mapped and written within `memoryBudget` bytes. other image files are
+     * decoded in bands of rows which, with their decoded copy, take at most about half of `memoryBudget` bytes,
+     * and are written within the other half. bands and written rows hold at least one row, whatever the budget.
+     * `tileSize` and `memoryBudget` must be positive.
+     * <br><br>
+     * some formats, e.g. png, cannot seek to a row, thus decoding a band decodes and discards the rows above it.
+     * a larger budget means fewer bands, thus fewer rows decoded more than once.
+     */
+    public static void writeFromFilePath(String filePath, Path path, int tileSize, long memoryBudget)
+            throws IOException {
+        Objects.requireNonNull(filePath);
+        Objects.requireNonNull(path);
+        assert tileSize > 0;
+        assert memoryBudget > 0;
+
+        if (filePath.endsWith(RawImageFile.EXTENSION)) {
+            write(RawImageFile.open(Path.of(filePath)), path, tileSize, memoryBudget);
+            return;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(filePath))) {
+            if (input == null) throw new IOException("failed to open " + filePath);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) throw new IOException(filePath + " is not in a supported image format");
+
+            ImageReader reader = readers.next();
+            try {
+                // bands are read in order, but a reader may need to seek back to the start of the image for each.
+                reader.setInput(input, false, true);
+                long halfMemoryBudget = Math.max(1, memoryBudget / 2);
+                write(new BandReader(reader, halfMemoryBudget), path, tileSize, halfMemoryBudget);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * a pixel source decoding an image one band of rows at a time, holding only the last decoded band.
+     * rows are meant to be read in order, as reading a row outside the held band decodes its band.
+     */
+    private static class BandReader implements PixelSource {
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+        private final int bandHeight;
+        /**
+         * the packed rgb values of the rows of the held band, ordered row by row.
+         */
+        private final int[] band;
+        private int bandFromY = -1;
+
+        BandReader(ImageReader reader, long memoryBudget) throws IOException {
+            this.reader = reader;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            // each row is held twice, decoded and packed, taking 8 bytes per pixel.
+            this.bandHeight = (int) Math.max(1, Math.min(memoryBudget / (8L * width), height));
+            this.band = new int[Math.multiplyExact(bandHeight, width)];
+        }
+
+        @Override
+        public int getWidth() {return width;}
+
+        @Override
+        public int getHeight() {return height;}
+
+        @Override
+        public int getRGBAt(int x, int y) {
+            assert 0 <= x && x < width;
+
+            decodeBandOf(y);
+            return band[(y - bandFromY) * width + x];
+        }
+
+        @Override
+        public void getRowRGB(int y, int[] row) {
+            assert row.length >= width;
+
+            decodeBandOf(y);
+            System.arraycopy(band, (y - bandFromY) * width, row, 0, width);
+        }
+
+        private void decodeBandOf(int y) {
+            assert 0 <= y && y < height;
+            if (bandFromY != -1 && bandFromY <= y && y < bandFromY + bandHeight) return;
+
+            int fromY = y / bandHeight * bandHeight;
+            int rowCount = Math.min(bandHeight, height - fromY);
+            ImageReadParam readParam = reader.getDefaultReadParam();
+            readParam.setSourceRegion(new Rectangle(0, fromY, width, rowCount));
+            BufferedImage bufferedImage;
+            try {
+                bufferedImage = reader.read(0, readParam);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to decode rows " + fromY + " to " + (fromY + rowCount), e);
+            }
+            bufferedImage.getRGB(0, 0, width, rowCount, band, 0, width);
+            for (int i = 0; i < rowCount * width; i++) {
+                band[i] = Image.toOpaque(band[i]);
+            }
+            bandFromY = fromY;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * opens the tile file at `path` with the default memory budget.
+     */
+    public static TiledImage open(Path path) throws IOException {
+        return open(path, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * opens the tile file at `path`, caching at most as many tiles as fit in `memoryBudget` bytes.
+     * at least one tile is cached, whatever the budget.
+     * if the file is not a tile file, an exception is thrown.
+     */
+    public static TiledImage open(Path path, long memoryBudget) throws IOException {
+        return open(path, memoryBudget, StandardOpenOption.READ);
+    }
+
+    private static TiledImage open(Path path, long memoryBudget, OpenOption... options) throws IOException {
+        Objects.requireNonNull(path);
+        assert memoryBudget > 0;
+
+        FileChannel channel = FileChannel.open(path, options);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new IOException(path + " is too short to be a tile file");
+            }
+            header.flip();
+            if (header.getInt() != MAGIC_NUMBER) throw new IOException(path + " is not a tile file");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(path + " has the unsupported version " + version);
+
+            int width = header.getInt();
+            int height = header.getInt();
+            int tileSize = header.getInt();
+            if (width <= 0 || height <= 0 || tileSize <= 0) throw new IOException(path + " has an invalid size");
+
+            TileStore tileStore = new TileStore(path, channel, width, height, tileSize, memoryBudget);
+            int[] storedXs = new int[width];
+            for (int x = 0; x < width; x++) {
+                storedXs[x] = x;
+            }
+            return new TiledImage(tileStore, storedXs);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * closes the tile file. this closes every image sharing it, i.e. every image derived by removing columns.
+     */
+    @Override
+    public void close() throws IOException {
+        tileStore.channel.close();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // COLUMNS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns a new image without the x'th column, which shares this image's tile file and cache.
+     * this takes O(width) time and reads no tiles.
+     * x must be in the range [0, width).
+     */
+    @Override
+    public TiledImage removeColumn(int x) {
+        assert existsColumnAt(x);
+        assert getWidth() > 1;
+
+        int newWidth = storedXs.length - 1;
+        int[] newStoredXs = new int[newWidth];
+        System.arraycopy(storedXs, 0, newStoredXs, 0, x);
+        System.arraycopy(storedXs, x + 1, newStoredXs, x, newWidth - x);
+        return new TiledImage(tileStore, newStoredXs);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // SEAMS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * writes this image without the pixels of the vertical seam `seam` to a new temporary tile file next to this
+     * image's tile file, with the same tile size, then opens it with the same memory budget. the temporary file is
+     * deleted when the new image is closed. this image is left unchanged.
+     * the length of `seam` must equal this image's height, and every x must be in the range [0, width).
+     * if the tile file cannot be written, an `UncheckedIOException` is thrown.
+     */
+    @Override
+    public TiledImage removeSeam(int[] seam) {
+        Objects.requireNonNull(seam);
+
+        Path directory = tileStore.path.toAbsolutePath().getParent();
+        Path path = null;
+        try {
+            path = Files.createTempFile(directory, "carved-", EXTENSION);
+            writeWithoutSeam(seam, path);
+            return open(path, tileStore.memoryBudget, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            try {
+                if (path != null) Files.deleteIfExists(path);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("failed to write a carved copy of " + tileStore.path, e);
+        }
+    }
+
+    /**
+     * writes this image without the pixels of the vertical seam `seam` to a new tile file at `path`, with the same tile
+     * size, then opens it with the same memory budget. this image is left unchanged.
+     * the length of `seam` must equal this image's height, and every x must be in the range [0, width).
+     */
+    public TiledImage removeSeam(int[] seam, Path path) throws IOException {
+        Objects.requireNonNull(seam);
+        Objects.requireNonNull(path);
+
+        writeWithoutSeam(seam, path);
+        return open(path, tileStore.memoryBudget);
+    }
+
+    private void writeWithoutSeam(int[] seam, Path path) throws IOException {
+        assert seam.length == getHeight();
+        assert getWidth() > 1;
+
+        int newWidth = getWidth() - 1;
+        int[] row = new int[getWidth()];
+        PixelSource carvedPixelSource = new PixelSource() {
+            @Override
+            public int getWidth() {return newWidth;}
+
+            @Override
+            public int getHeight() {return TiledImage.this.getHeight();}
+
+            @Override
+            public int getRGBAt(int x, int y) {
+                return TiledImage.this.getRGBAt(x < seam[y] ? x : x + 1, y);
+            }
+
+            @Override
+            public void getRowRGB(int y, int[] newRow) {
+                int x = seam[y];
+                assert existsColumnAt(x);
+
+                TiledImage.this.getRowRGB(y, row);
+                System.arraycopy(row, 0, newRow, 0, x);
+                System.arraycopy(row, x + 1, newRow, x, newWidth - x);
+            }
+        };
+        write(carvedPixelSource, path, tileStore.tileSize, tileStore.memoryBudget);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // PIXELS
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getRGBAt(int x, int y) {
+        assert existsColumnAt(x) && existsRowAt(y);
+
+        int tileSize = tileStore.tileSize;
+        int storedX = storedXs[x];
+        int[] tile = tileStore.getTile(storedX / tileSize, y / tileSize);
+        return tile[(y % tileSize) * tileSize + storedX % tileSize];
+    }
+
+    @Override
+    public void getRowRGB(int y, int[] row) {
+        assert existsRowAt(y);
+        assert row.length >= getWidth();
+
+        int tileSize = tileStore.tileSize;
+        int tileY = y / tileSize;
+        int tileRowStart = (y % tileSize) * tileSize;
+        // the stored columns are ascending, thus consecutive columns usually lie in the same tile.
+        int tileX = -1;
+        int[] tile = null;
+        for (int x = 0; x < storedXs.length; x++) {
+            int storedX = storedXs[x];
+            if (storedX / tileSize != tileX) {
+                tileX = storedX / tileSize;
+                tile = tileStore.getTile(tileX, tileY);
+            }
+            row[x] = tile[tileRowStart + storedX % tileSize];
+        }
+    }
+
+    /**
+     * returns a new image holding this image's pixels in memory.
+     * this image must be small enough to fit in memory.
+     */
+    public Image toImage() {
+        int[][] rows = new int[getHeight()][getWidth()];
+        for (int y = 0; y < rows.length; y++) {
+            getRowRGB(y, rows[y]);
+        }
+        return Image.fromRowRGBs(rows);
+    }
+
+    @Override
+    public int getWidth() {return storedXs.length;}
+
+    @Override
+    public int getHeight() {return tileStore.height;}
+
+    public int getTileSize() {return tileStore.tileSize;}
+
+    /**
+     * returns the number of tiles the cache can hold within the memory budget.
+     */
+    public int getMaxCachedTileCount() {return tileStore.maxCachedTileCount;}
+
+    /**
+     * returns the number of tiles read from the tile file so far, by this image and every image sharing its file.
+     */
+    public long getLoadedTileCount() {
+        synchronized (tileStore) {
+            return tileStore.loadedTileCount;
+        }
+    }
+
+    /**
+     * returns the number of tiles currently cached.
+     */
+    public int getCachedTileCount() {
+        synchronized (tileStore) {
+            return tileStore.cachedTiles.size();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // EXISTENCE
+    ///////////////////////////////////////////////////////////////////////////
+
+    public boolean existsColumnAt(int x) {return 0 <= x && x < getWidth();}
+
+    public boolean existsRowAt(int y) {return 0 <= y && y < getHeight();}
+}
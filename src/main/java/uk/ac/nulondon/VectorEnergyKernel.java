@@ -0,0 +1,102 @@
+package uk.ac.nulondon;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * computes brightnesses and energies several pixels at a time using the vector api.
+ * <br><br>
+ * notes:
+ * <br><br>
+ * the vector api is in the incubator module `jdk.incubator.vector`, which is only present when the jvm is started
+ * with `--add-modules jdk.incubator.vector`. this class must not be loaded unless the module is present,
+ * which is checked by `EnergyMap.isVectorKernelAvailable`.
+ * <br><br>
+ * every lane performs the same operations in the same order as the scalar code in `EnergyMap`,
+ * thus both produce identical results.
+ */
+final class VectorEnergyKernel {
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    /**
+     * has as many lanes as `DOUBLE_SPECIES`, so that converting an int vector to a double vector keeps every lane.
+     */
+    private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(
+            int.class,
+            VectorShape.forBitSize(DOUBLE_SPECIES.vectorBitSize() / 2)
+    );
+
+    private VectorEnergyKernel() {}
+
+    /**
+     * writes the brightnesses of the packed rgb values `rgbs[fromIndex]` to `rgbs[toIndex - 1]`
+     * into `brightnesses[0]` to `brightnesses[toIndex - fromIndex - 1]`.
+     */
+    static void computeBrightnesses(int[] rgbs, int fromIndex, int toIndex, double[] brightnesses) {
+        int lanes = DOUBLE_SPECIES.length();
+        int index = fromIndex;
+        for (; index + lanes <= toIndex; index += lanes) {
+            IntVector rgb = IntVector.fromArray(INT_SPECIES, rgbs, index);
+            IntVector red = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+            IntVector green = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+            IntVector blue = rgb.and(0xFF);
+            DoubleVector sum = (DoubleVector) red.add(green)
+                                                 .add(blue)
+                                                 .convertShape(VectorOperators.I2D, DOUBLE_SPECIES, 0);
+            sum.div(3.0).intoArray(brightnesses, index - fromIndex);
+        }
+        for (; index < toIndex; index++) {
+            brightnesses[index - fromIndex] = EnergyMap.getBrightnessOf(rgbs[index]);
+        }
+    }
+
+    /**
+     * writes the energies of the pixels whose x is in the range [fromX, toX) into `energies`, where the rows above,
+     * of and below the pixels start at the indices `top`, `middle` and `bottom` of `b` and `energies`.
+     * the pixels must not be on a border.
+     */
+    static void computeInteriorEnergies(
+            double[] b,
+            double[] energies,
+            int top,
+            int middle,
+            int bottom,
+            int fromX,
+            int toX
+    ) {
+        int lanes = DOUBLE_SPECIES.length();
+        int x = fromX;
+        for (; x + lanes <= toX; x += lanes) {
+            DoubleVector topLeft = DoubleVector.fromArray(DOUBLE_SPECIES, b, top + x - 1);
+            DoubleVector topCenter = DoubleVector.fromArray(DOUBLE_SPECIES, b, top + x);
+            DoubleVector topRight = DoubleVector.fromArray(DOUBLE_SPECIES, b, top + x + 1);
+            DoubleVector middleLeft = DoubleVector.fromArray(DOUBLE_SPECIES, b, middle + x - 1);
+            DoubleVector middleRight = DoubleVector.fromArray(DOUBLE_SPECIES, b, middle + x + 1);
+            DoubleVector bottomLeft = DoubleVector.fromArray(DOUBLE_SPECIES, b, bottom + x - 1);
+            DoubleVector bottomCenter = DoubleVector.fromArray(DOUBLE_SPECIES, b, bottom + x);
+            DoubleVector bottomRight = DoubleVector.fromArray(DOUBLE_SPECIES, b, bottom + x + 1);
+
+            DoubleVector leftColumnEnergy = topLeft.add(middleLeft.mul(2)).add(bottomLeft);
+            DoubleVector rightColumnEnergy = topRight.add(middleRight.mul(2)).add(bottomRight);
+            DoubleVector bottomRowEnergy = bottomLeft.add(bottomCenter.mul(2)).add(bottomRight);
+            DoubleVector topRowEnergy = topLeft.add(topCenter.mul(2)).add(topRight);
+            DoubleVector horizontalEnergy = leftColumnEnergy.sub(rightColumnEnergy);
+            DoubleVector verticalEnergy = bottomRowEnergy.sub(topRowEnergy);
+            horizontalEnergy.mul(horizontalEnergy)
+                            .add(verticalEnergy.mul(verticalEnergy))
+                            .lanewise(VectorOperators.SQRT)
+                            .intoArray(energies, middle + x);
+        }
+        for (; x < toX; x++) {
+            double leftColumnEnergy = b[top + x - 1] + 2 * b[middle + x - 1] + b[bottom + x - 1];
+            double rightColumnEnergy = b[top + x + 1] + 2 * b[middle + x + 1] + b[bottom + x + 1];
+            double bottomRowEnergy = b[bottom + x - 1] + 2 * b[bottom + x] + b[bottom + x + 1];
+            double topRowEnergy = b[top + x - 1] + 2 * b[top + x] + b[top + x + 1];
+            double horizontalEnergy = leftColumnEnergy - rightColumnEnergy;
+            double verticalEnergy = bottomRowEnergy - topRowEnergy;
+            energies[middle + x] = Math.sqrt(horizontalEnergy * horizontalEnergy + verticalEnergy * verticalEnergy);
+        }
+    }
+}
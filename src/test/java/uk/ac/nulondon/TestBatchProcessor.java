@@ -0,0 +1,108 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestBatchProcessor {
+    private static final List<String> FILE_NAMES = List.of("beach.png", "multi.png", "scene.png", "sun.png", "tree.png");
+    private static final EditScript RECIPE = EditScript.parse(List.of(
+            "carve 2",
+            "highlight-bluest",
+            "delete"
+    ));
+
+    @TempDir
+    Path inputDirectory;
+    @TempDir
+    Path outputDirectory;
+
+    private void copyImagesToInputDirectory() throws IOException {
+        for (String fileName : FILE_NAMES) {
+            Files.copy(Path.of("src/main/resources/8x8-images", fileName), inputDirectory.resolve(fileName));
+        }
+    }
+
+    private static Image getExpectedImage(Path inputPath) throws IOException {
+        ImageEditor imageEditor = new ImageEditor(Image.fromFilePath(inputPath.toString()));
+        imageEditor.removeLowestEnergySeams(2);
+        imageEditor.highlightBluestColumn();
+        imageEditor.deleteHighlightedColumn();
+        return imageEditor.getImage();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1", "2", "8"})
+    void process(int carvingParallelism) throws IOException {
+        copyImagesToInputDirectory();
+        RawImageFile.write(Images.getImage(0), inputDirectory.resolve("raw" + RawImageFile.EXTENSION));
+        Files.writeString(inputDirectory.resolve("notes.txt"), "not an image");
+
+        List<BatchProcessor.FileTiming> fileTimings = BatchProcessor.process(
+                inputDirectory, outputDirectory, EditScript.parse(List.of("highlight-bluest", "delete")),
+                carvingParallelism
+        );
+        assertThat(fileTimings).extracting(BatchProcessor.FileTiming::fileName)
+                               .containsExactly("beach.png", "multi.png", "raw.nuraw", "scene.png", "sun.png",
+                                       "tree.png");
+        assertThat(fileTimings).allMatch(fileTiming -> fileTiming.failure() == null);
+        assertThat(Image.fromFilePath(outputDirectory.resolve("raw.nuraw").toString()))
+                .isEqualTo(Images.getImage(0).removeColumn(new ImageEditor(Images.getImage(0)).getBluestColumnIndex()));
+    }
+
+    @Test
+    void processAppliesRecipe() throws IOException {
+        copyImagesToInputDirectory();
+        List<BatchProcessor.FileTiming> fileTimings = BatchProcessor.process(
+                inputDirectory, outputDirectory, RECIPE, 3
+        );
+        assertThat(fileTimings).hasSize(FILE_NAMES.size());
+        for (String fileName : FILE_NAMES) {
+            Image actualImage = Image.fromFilePath(outputDirectory.resolve(fileName).toString());
+            assertThat(actualImage).isEqualTo(getExpectedImage(inputDirectory.resolve(fileName)));
+        }
+        assertThat(BatchProcessor.formatReport(fileTimings)).contains(FILE_NAMES)
+                                                            .contains("5 files, 0 failed");
+    }
+
+    @Test
+    void processRejectsCollidingOutputFileNames() throws IOException {
+        copyImagesToInputDirectory();
+        // images are decoded by their content, thus only the names matter.
+        Files.copy(inputDirectory.resolve("beach.png"), inputDirectory.resolve("beach.gif"));
+        List<BatchProcessor.FileTiming> fileTimings = BatchProcessor.process(
+                inputDirectory, outputDirectory, RECIPE, 2
+        );
+        assertThat(fileTimings).filteredOn(fileTiming -> fileTiming.failure() != null)
+                               .extracting(BatchProcessor.FileTiming::fileName)
+                               .containsExactly("beach.gif", "beach.png");
+        assertThat(fileTimings).filteredOn(fileTiming -> fileTiming.failure() != null)
+                               .allSatisfy(fileTiming -> assertThat(fileTiming.failure())
+                                       .hasMessageContaining("beach.gif, beach.png"));
+        assertThat(Files.exists(outputDirectory.resolve("beach.png"))).isFalse();
+        assertThat(Files.exists(outputDirectory.resolve("tree.png"))).isTrue();
+    }
+
+    @Test
+    void processReportsFailuresWithoutStopping() throws IOException {
+        copyImagesToInputDirectory();
+        Files.write(inputDirectory.resolve("corrupt.png"), new byte[64]);
+        List<BatchProcessor.FileTiming> fileTimings = BatchProcessor.process(
+                inputDirectory, outputDirectory, RECIPE, 2
+        );
+        assertThat(fileTimings).hasSize(FILE_NAMES.size() + 1);
+        assertThat(fileTimings).filteredOn(fileTiming -> fileTiming.failure() != null)
+                               .extracting(BatchProcessor.FileTiming::fileName)
+                               .containsExactly("corrupt.png");
+        assertThat(Files.exists(outputDirectory.resolve("corrupt.png"))).isFalse();
+        assertThat(BatchProcessor.formatReport(fileTimings)).contains("6 files, 1 failed");
+    }
+}
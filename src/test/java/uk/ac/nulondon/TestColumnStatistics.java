@@ -0,0 +1,96 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.nulondon.CollectionUtilities.map;
+
+class TestColumnStatistics {
+    private static final double TOLERANCE = 1e-9;
+
+    public static Stream<Image> getImageStream() {
+        return map(Images.imagesAsRows, Image::fromRows).stream();
+    }
+
+    private static void assertStatisticsMatchImage(ColumnStatistics columnStatistics, Image image) {
+        assertThat(columnStatistics.getWidth()).isEqualTo(image.getWidth());
+        for (int x = 0; x < image.getWidth(); x++) {
+            assertThat(columnStatistics.getRedSum(x))
+                    .isEqualTo(image.getColumn(x).stream().mapToLong(Color::getRed).sum());
+            assertThat(columnStatistics.getGreenSum(x))
+                    .isEqualTo(image.getColumn(x).stream().mapToLong(Color::getGreen).sum());
+            assertThat(columnStatistics.getBlueSum(x))
+                    .isEqualTo(image.getColumn(x).stream().mapToLong(Color::getBlue).sum());
+        }
+        if (columnStatistics.hasEnergySums()) {
+            EnergyMap energyMap = EnergyMap.of(image);
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(columnStatistics.getEnergySum(x))
+                        .isCloseTo(energyMap.getColumnEnergy(x), within(TOLERANCE));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void of(Image image) {
+        assertStatisticsMatchImage(ColumnStatistics.of(image), image);
+        assertStatisticsMatchImage(ColumnStatistics.of(image, EnergyMap.of(image)), image);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 0",
+            "src/main/resources/8x8-images/multi.png, 3",
+            "src/main/resources/8x8-images/scene.png, 7",
+            "src/main/resources/8x8-images/sun.png, 1",
+            "src/main/resources/8x8-images/tree.png, 6"
+    })
+    void removeColumnAndInsertColumn(String filePath, int x) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        EnergyMap energyMap = EnergyMap.of(image);
+        ColumnStatistics columnStatistics = ColumnStatistics.of(image, energyMap);
+
+        Image newImage = image.removeColumn(x);
+        energyMap.removeColumn(x);
+        columnStatistics.removeColumn(x, energyMap);
+        assertThat(columnStatistics.hasEnergySums()).isTrue();
+        assertStatisticsMatchImage(columnStatistics, newImage);
+
+        columnStatistics.insertColumn(x, image.getColumnRGB(x));
+        assertThat(columnStatistics.hasEnergySums()).isFalse();
+        assertStatisticsMatchImage(columnStatistics, image);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void getExtremeColumnIndices(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        EnergyMap energyMap = EnergyMap.of(image);
+        ColumnStatistics columnStatistics = ColumnStatistics.of(image, energyMap);
+        int reddestX = 0;
+        int bluestX = 0;
+        int lowestEnergyX = 0;
+        for (int x = 1; x < image.getWidth(); x++) {
+            if (columnStatistics.getRedSum(x) > columnStatistics.getRedSum(reddestX)) reddestX = x;
+            if (columnStatistics.getBlueSum(x) > columnStatistics.getBlueSum(bluestX)) bluestX = x;
+            if (energyMap.getColumnEnergy(x) < energyMap.getColumnEnergy(lowestEnergyX)) lowestEnergyX = x;
+        }
+        assertThat(columnStatistics.getReddestColumnIndex()).isEqualTo(reddestX);
+        assertThat(columnStatistics.getBluestColumnIndex()).isEqualTo(bluestX);
+        assertThat(columnStatistics.getLowestEnergyColumnIndex()).isEqualTo(lowestEnergyX);
+    }
+}
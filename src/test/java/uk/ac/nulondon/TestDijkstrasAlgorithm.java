@@ -0,0 +1,195 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TestDijkstrasAlgorithm {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void getShortestPathOfNodes() {
+        Node a = new Node();
+        Node b = new Node();
+        Node c = new Node();
+        Node d = new Node();
+        Node unreachable = new Node();
+        a.addAdjacentNode(b, 1);
+        a.addAdjacentNode(c, 4);
+        b.addAdjacentNode(c, 1);
+        b.addAdjacentNode(d, 5);
+        c.addAdjacentNode(d, 1);
+        Set<Node> graph = Set.of(a, b, c, d, unreachable);
+
+        assertThat(DijkstrasAlgorithm.getShortestPath(a, d, graph)).containsExactly(a, b, c, d);
+        assertThat(DijkstrasAlgorithm.getShortestPath(a, a, graph)).containsExactly(a);
+        assertThat(DijkstrasAlgorithm.getShortestPath(a, unreachable, graph)).isEmpty();
+        assertThat(DijkstrasAlgorithm.getShortestPath(d, a, graph)).isEmpty();
+    }
+
+    @Test
+    void getShortestPathOfCsrGraph() {
+        Node a = new Node();
+        Node b = new Node();
+        Node c = new Node();
+        Node d = new Node();
+        // edges are deliberately not grouped by source.
+        List<Edge> edges = List.of(
+                new Edge(c, d, 1),
+                new Edge(a, b, 1),
+                new Edge(b, d, 5),
+                new Edge(a, c, 4),
+                new Edge(b, c, 1)
+        );
+        CsrGraph graph = CsrGraph.fromEdges(edges);
+
+        assertThat(graph.getNodeCount()).isEqualTo(4);
+        assertThat(graph.getEdgeCount()).isEqualTo(5);
+        int bId = graph.getId(b);
+        assertThat(graph.getEdgeCount(bId)).isEqualTo(2);
+        assertThat(graph.getNode(graph.getTarget(bId, 0))).isEqualTo(d);
+        assertThat(graph.getWeight(bId, 0)).isEqualTo(5);
+        assertThat(graph.getNode(graph.getTarget(bId, 1))).isEqualTo(c);
+        assertThat(graph.getEdgeCount(graph.getId(d))).isZero();
+
+        assertThat(DijkstrasAlgorithm.getShortestPath(a, d, graph)).containsExactly(a, b, c, d);
+        assertThat(DijkstrasAlgorithm.getShortestPath(d, a, graph)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    void getShortestPathOfRandomGraph(long seed) {
+        Random random = new Random(seed);
+        int nodeCount = 30;
+        int edgesPerNode = 4;
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[nodeCount * edgesPerNode];
+        double[] weights = new double[nodeCount * edgesPerNode];
+        for (int id = 0; id < nodeCount; id++) {
+            offsets[id + 1] = offsets[id] + edgesPerNode;
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                targets[edge] = random.nextInt(nodeCount);
+                weights[edge] = random.nextDouble() * 10;
+            }
+        }
+
+        // bellman-ford finds the same distances without a heap.
+        double[] expectedDistances = new double[nodeCount];
+        Arrays.fill(expectedDistances, Double.POSITIVE_INFINITY);
+        expectedDistances[0] = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            for (int id = 0; id < nodeCount; id++) {
+                for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                    double distance = expectedDistances[id] + weights[edge];
+                    expectedDistances[targets[edge]] = Math.min(expectedDistances[targets[edge]], distance);
+                }
+            }
+        }
+
+        for (int endId = 0; endId < nodeCount; endId++) {
+            int[] path = DijkstrasAlgorithm.getShortestPath(new ArrayGraph(offsets, targets, weights), 0, endId);
+            if (expectedDistances[endId] == Double.POSITIVE_INFINITY) {
+                assertThat(path).isEmpty();
+                continue;
+            }
+            assertThat(path[0]).isEqualTo(0);
+            assertThat(path[path.length - 1]).isEqualTo(endId);
+            assertThat(getPathDistance(offsets, targets, weights, path))
+                    .isCloseTo(expectedDistances[endId], within(TOLERANCE));
+        }
+    }
+
+    private static double getPathDistance(int[] offsets, int[] targets, double[] weights, int[] path) {
+        double pathDistance = 0;
+        for (int i = 1; i < path.length; i++) {
+            double minWeight = Double.POSITIVE_INFINITY;
+            for (int edge = offsets[path[i - 1]]; edge < offsets[path[i - 1] + 1]; edge++) {
+                if (targets[edge] == path[i]) {
+                    minWeight = Math.min(minWeight, weights[edge]);
+                }
+            }
+            pathDistance += minWeight;
+        }
+        return pathDistance;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"beach", "multi", "scene", "sun", "tree"})
+    void findVerticalSeamOfPixelGridGraph(String name) throws Exception {
+        EnergyMap energyMap = EnergyMap.of(Image.fromFilePath("src/main/resources/8x8-images/" + name + ".png"));
+        PixelGridGraph graph = new PixelGridGraph(energyMap);
+
+        int[] seam = graph.findVerticalSeam();
+
+        assertThat(seam).hasSize(energyMap.getHeight());
+        for (int y = 1; y < seam.length; y++) {
+            assertThat(Math.abs(seam[y] - seam[y - 1])).isLessThanOrEqualTo(1);
+        }
+        assertThat(SeamFinder.getSeamEnergy(energyMap, seam))
+                .isCloseTo(SeamFinder.getSeamEnergy(energyMap, SeamFinder.findVerticalSeam(energyMap)),
+                           within(TOLERANCE));
+    }
+
+    @Test
+    void pixelGridGraphEdges() {
+        EnergyMap energyMap = EnergyMap.of(Image.fromRows(List.of(
+                List.of(Color.RED, Color.GREEN, Color.BLUE),
+                List.of(Color.BLACK, Color.WHITE, Color.GRAY)
+        )));
+        PixelGridGraph graph = new PixelGridGraph(energyMap);
+
+        assertThat(graph.getNodeCount()).isEqualTo(8);
+        assertThat(graph.getEdgeCount(graph.getSourceId())).isEqualTo(3);
+        assertThat(graph.getEdgeCount(graph.getSinkId())).isZero();
+        // (0,0) leads to (0,1) and (1,1), and (1,0) leads to the whole bottom row.
+        assertThat(graph.getEdgeCount(0)).isEqualTo(2);
+        assertThat(graph.getTarget(0, 1)).isEqualTo(4);
+        assertThat(graph.getEdgeCount(1)).isEqualTo(3);
+        assertThat(graph.getTarget(1, 0)).isEqualTo(3);
+        assertThat(graph.getWeight(1, 2)).isEqualTo(energyMap.getEnergyAt(2, 1));
+        assertThat(graph.getTarget(5, 0)).isEqualTo(graph.getSinkId());
+        assertThat(graph.getWeight(5, 0)).isZero();
+    }
+
+    /**
+     * a graph stored in the arrays of a compressed sparse row graph.
+     */
+    private record ArrayGraph(int[] offsets, int[] targets, double[] weights) implements Graph {
+        @Override
+        public int getNodeCount() {return offsets.length - 1;}
+
+        @Override
+        public int getEdgeCount(int id) {return offsets[id + 1] - offsets[id];}
+
+        @Override
+        public int getTarget(int id, int i) {return targets[offsets[id] + i];}
+
+        @Override
+        public double getWeight(int id, int i) {return weights[offsets[id] + i];}
+    }
+
+    @Test
+    void indexedMinHeap() {
+        IndexedMinHeap heap = new IndexedMinHeap(5);
+        List.of(3, 0, 4, 1, 2).forEach(id -> heap.insert(id, 10 + id));
+        heap.decreaseKey(4, 1);
+        heap.decreaseKey(2, 5);
+        assertThat(heap.size()).isEqualTo(5);
+        assertThat(heap.pollMin()).isEqualTo(4);
+        assertThat(heap.pollMin()).isEqualTo(2);
+        assertThat(heap.pollMin()).isEqualTo(0);
+        assertThat(heap.contains(0)).isFalse();
+        assertThat(heap.pollMin()).isEqualTo(1);
+        assertThat(heap.pollMin()).isEqualTo(3);
+        assertThat(heap.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestEditScript {
+    @TempDir
+    Path directory;
+
+    @Test
+    void parseIgnoresBlankLinesAndComments() {
+        EditScript editScript = EditScript.parse(List.of(
+                "# removes the bluest column",
+                "",
+                "highlight-bluest",
+                "  delete  ",
+                "carve 2",
+                "save out.png"
+        ));
+        assertThat(editScript.getStepCount()).isEqualTo(4);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "shrink",
+            "carve",
+            "carve 0",
+            "carve -1",
+            "carve two",
+            "carve 99999999999",
+            "save",
+            "undo 2"
+    })
+    void parseRejectsInvalidSteps(String line) {
+        assertThatThrownBy(() -> EditScript.parse(List.of("undo", line)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("line 2");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void run(String imageFilePath) throws IOException {
+        Path highlightedFilePath = directory.resolve("highlighted.png");
+        Path finalFilePath = directory.resolve("final" + RawImageFile.EXTENSION);
+        EditScript editScript = EditScript.parse(List.of(
+                "highlight-bluest",
+                "save " + highlightedFilePath,
+                "delete",
+                "carve 3",
+                "undo",
+                "carve 2",
+                "highlight-bluest",
+                "delete",
+                "save " + finalFilePath
+        ));
+        ImageEditor imageEditor = editScript.run(imageFilePath);
+
+        ImageEditor expectedImageEditor = new ImageEditor(Image.fromFilePath(imageFilePath));
+        expectedImageEditor.highlightBluestColumn();
+        Image expectedHighlightedImage = expectedImageEditor.getImage();
+        expectedImageEditor.deleteHighlightedColumn();
+        expectedImageEditor.removeLowestEnergySeams(2);
+        expectedImageEditor.highlightBluestColumn();
+        expectedImageEditor.deleteHighlightedColumn();
+        Image expectedImage = expectedImageEditor.getImage();
+
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImage);
+        assertThat(Image.fromFilePath(highlightedFilePath.toString())).isEqualTo(expectedHighlightedImage);
+        assertThat(Image.fromFilePath(finalFilePath.toString())).isEqualTo(expectedImage);
+        // only the requested images are written.
+        assertThat(new File(directory.toString()).list()).hasSize(2);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "delete, line 1",
+            "undo, line 1",
+            "carve 8, line 1"
+    })
+    void runRejectsInapplicableSteps(String line, String expectedMessagePrefix) {
+        EditScript editScript = EditScript.parse(List.of(line));
+        ImageEditor imageEditor = new ImageEditor(Images.getImage(0));
+        assertThatThrownBy(() -> editScript.run(imageEditor))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith(expectedMessagePrefix);
+    }
+}
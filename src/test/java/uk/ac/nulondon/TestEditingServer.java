@@ -0,0 +1,199 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestEditingServer {
+    private EditingServer editingServer;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        editingServer = EditingServer.start(0);
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        httpClient.close();
+        editingServer.close();
+    }
+
+    private URI getUri(String path) {
+        return URI.create("http://localhost:" + editingServer.getPort() + path);
+    }
+
+    private HttpResponse<String> post(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(getUri(path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String startSession(String filePath) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(getUri("/sessions"))
+                                         .POST(HttpRequest.BodyPublishers.ofFile(Path.of(filePath)))
+                                         .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(201);
+        return response.body();
+    }
+
+    private Image fetchImage(String sessionId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(getUri("/sessions/" + sessionId + "/image")).GET().build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("image/png");
+        return Image.fromBufferedImage(ImageIO.read(new ByteArrayInputStream(response.body())));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void edit(String filePath) throws IOException, InterruptedException {
+        String sessionId = startSession(filePath);
+        assertThat(post("/sessions/" + sessionId + "/carve?count=2").body()).isEqualTo("6x8");
+        assertThat(post("/sessions/" + sessionId + "/highlight-bluest").statusCode()).isEqualTo(200);
+        assertThat(post("/sessions/" + sessionId + "/delete").body()).isEqualTo("5x8");
+        assertThat(post("/sessions/" + sessionId + "/undo").body()).isEqualTo("6x8");
+
+        // undoing a deletion also undoes the highlight it deleted.
+        ImageEditor imageEditor = new ImageEditor(Image.fromFilePath(filePath));
+        imageEditor.removeLowestEnergySeams(2);
+        assertThat(fetchImage(sessionId)).isEqualTo(imageEditor.getImage());
+    }
+
+    @Test
+    void editSessionsConcurrently() throws IOException, InterruptedException {
+        List<String> filePaths = List.of(
+                "src/main/resources/8x8-images/beach.png",
+                "src/main/resources/8x8-images/scene.png",
+                "src/main/resources/8x8-images/tree.png"
+        );
+        List<String> sessionIds = new ArrayList<>();
+        for (String filePath : filePaths) {
+            sessionIds.add(startSession(filePath));
+        }
+        List<CompletableFuture<HttpResponse<String>>> futureResponses = new ArrayList<>();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            String path = "/sessions/" + sessionIds.get(i) + "/carve?count=" + (i + 1);
+            HttpRequest request = HttpRequest.newBuilder(getUri(path))
+                                             .POST(HttpRequest.BodyPublishers.noBody())
+                                             .build();
+            futureResponses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < sessionIds.size(); i++) {
+            assertThat(futureResponses.get(i).join().body()).isEqualTo((7 - i) + "x8");
+            ImageEditor imageEditor = new ImageEditor(Image.fromFilePath(filePaths.get(i)));
+            imageEditor.removeLowestEnergySeams(i + 1);
+            assertThat(fetchImage(sessionIds.get(i))).isEqualTo(imageEditor.getImage());
+        }
+        assertThat(editingServer.getSessionCount()).isEqualTo(filePaths.size());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "/carve?count=0, 400",
+            "/carve?count=8, 409",
+            "/carve?count=2%20save%20out.png, 400",
+            "/carve, 400",
+            "/delete, 409",
+            "/undo, 409",
+            "/save, 404",
+            "/image, 405"
+    })
+    void editRejectsInvalidRequests(String endpoint, int expectedStatusCode) throws IOException, InterruptedException {
+        String sessionId = startSession("src/main/resources/8x8-images/sun.png");
+        assertThat(post("/sessions/" + sessionId + endpoint).statusCode()).isEqualTo(expectedStatusCode);
+    }
+
+    @Test
+    void endSession() throws IOException, InterruptedException {
+        String sessionId = startSession("src/main/resources/8x8-images/sun.png");
+        HttpRequest request = HttpRequest.newBuilder(getUri("/sessions/" + sessionId)).DELETE().build();
+        assertThat(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+        assertThat(post("/sessions/" + sessionId + "/undo").statusCode()).isEqualTo(404);
+        assertThat(editingServer.getSessionCount()).isZero();
+    }
+
+    @Test
+    void startSessionLimitsSessions() throws IOException, InterruptedException {
+        editingServer.close();
+        editingServer = EditingServer.start(0, 2, Duration.ofSeconds(1), 64);
+        startSession("src/main/resources/8x8-images/sun.png");
+        String sessionId = startSession("src/main/resources/8x8-images/tree.png");
+        HttpRequest request = HttpRequest.newBuilder(getUri("/sessions"))
+                                         .POST(HttpRequest.BodyPublishers.ofFile(Path.of(
+                                                 "src/main/resources/8x8-images/beach.png"
+                                         )))
+                                         .build();
+        assertThat(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(503);
+
+        // idle sessions end, which frees room for new sessions.
+        Thread.sleep(1500);
+        assertThat(post("/sessions/" + sessionId + "/undo").statusCode()).isEqualTo(404);
+        startSession("src/main/resources/8x8-images/beach.png");
+        assertThat(editingServer.getSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void idleSessionsEndWithoutRequests() throws IOException, InterruptedException {
+        editingServer.close();
+        editingServer = EditingServer.start(0, 2, Duration.ofMillis(200), 64);
+        startSession("src/main/resources/8x8-images/sun.png");
+        assertThat(editingServer.getSessionCount()).isEqualTo(1);
+
+        // the session is swept within one and a half idle timeouts of its last request.
+        Thread.sleep(1000);
+        assertThat(editingServer.getSessionCount()).isZero();
+    }
+
+    @Test
+    void startSessionRejectsLargeImages() throws IOException, InterruptedException {
+        editingServer.close();
+        editingServer = EditingServer.start(0, 2, Duration.ofMinutes(1), 63);
+        HttpRequest request = HttpRequest.newBuilder(getUri("/sessions"))
+                                         .POST(HttpRequest.BodyPublishers.ofFile(Path.of(
+                                                 "src/main/resources/8x8-images/sun.png"
+                                         )))
+                                         .build();
+        assertThat(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(413);
+        assertThat(editingServer.getSessionCount()).isZero();
+    }
+
+    @Test
+    void startSessionRejectsOtherFiles() throws IOException, InterruptedException {
+        Path path = Files.createTempFile("not-an-image", ".png");
+        try {
+            Files.write(path, new byte[64]);
+            HttpRequest request = HttpRequest.newBuilder(getUri("/sessions"))
+                                             .POST(HttpRequest.BodyPublishers.ofFile(path))
+                                             .build();
+            assertThat(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(400);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static uk.ac.nulondon.CollectionUtilities.initializeList;
+import static uk.ac.nulondon.CollectionUtilities.map;
+import static uk.ac.nulondon.Utilities.clamp;
+
+class TestEnergyMap {
+    private static final double TOLERANCE = 1e-9;
+
+    public static Stream<Image> getImageStream() {
+        return map(Images.imagesAsRows, Image::fromRows).stream();
+    }
+
+    private static void assertEnergiesMatchImage(EnergyMap energyMap, Image image) {
+        assertThat(energyMap.getWidth()).isEqualTo(image.getWidth());
+        assertThat(energyMap.getHeight()).isEqualTo(image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(energyMap.getBrightnessAt(x, y)).isEqualTo(image.getBrightnessAt(x, y));
+                assertThat(energyMap.getEnergyAt(x, y)).isCloseTo(image.getEnergyAt(x, y), within(TOLERANCE));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void of(Image image) {
+        assertEnergiesMatchImage(EnergyMap.of(image), image);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void ofFile(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        assertEnergiesMatchImage(EnergyMap.of(image), image);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void ofTransposed(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        Image transpose = image.transposed();
+        EnergyMap energyMap = EnergyMap.of(image);
+        for (boolean useVectorKernel : new boolean[]{false, EnergyMap.isVectorKernelAvailable()}) {
+            EnergyMap transposeEnergyMap = EnergyMap.of(transpose, useVectorKernel);
+            assertEnergiesMatchImage(transposeEnergyMap, transpose);
+            // transposing swaps the horizontal and vertical energies, which leaves their magnitude unchanged.
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    assertThat(transposeEnergyMap.getEnergyAt(y, x))
+                            .isCloseTo(energyMap.getEnergyAt(x, y), within(TOLERANCE));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 1",
+            "src/main/resources/8x8-images/multi.png, 8",
+            "src/main/resources/8x8-images/scene.png, 16",
+            "src/main/resources/8x8-images/tree.png, 64"
+    })
+    void ofParallel(String filePath, int sequentialCutoff) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            EnergyMap energyMap = EnergyMap.ofParallel(image, pool, sequentialCutoff);
+            assertEnergiesMatchImage(energyMap, image);
+        }
+        assertEnergiesMatchImage(EnergyMap.ofParallel(image), image);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 1",
+            "5, 3",
+            "67, 13",
+            "128, 9"
+    })
+    void ofVectorKernel(int width, int height) {
+        assumeTrue(EnergyMap.isVectorKernelAvailable());
+
+        Random random = new Random(width * 31L + height);
+        List<List<Color>> rows = initializeList(
+                height,
+                y -> initializeList(width, x -> new Color(random.nextInt(0x1000000)))
+        );
+        Image image = Image.fromRows(rows);
+        EnergyMap vectorEnergyMap = EnergyMap.of(image, true);
+        EnergyMap scalarEnergyMap = EnergyMap.of(image, false);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertThat(vectorEnergyMap.getBrightnessAt(x, y)).isEqualTo(scalarEnergyMap.getBrightnessAt(x, y));
+                assertThat(vectorEnergyMap.getEnergyAt(x, y)).isEqualTo(scalarEnergyMap.getEnergyAt(x, y));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void getColumnEnergy(Image image) {
+        EnergyMap energyMap = EnergyMap.of(image);
+        for (int x = 0; x < image.getWidth(); x++) {
+            double expectedColumnEnergy = image.getEnergyColumn(x)
+                                               .stream()
+                                               .mapToDouble(Double::doubleValue)
+                                               .sum();
+            assertThat(energyMap.getColumnEnergy(x)).isCloseTo(expectedColumnEnergy, within(TOLERANCE));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 0",
+            "src/main/resources/8x8-images/multi.png, 3",
+            "src/main/resources/8x8-images/scene.png, 7",
+            "src/main/resources/8x8-images/tree.png, 5"
+    })
+    void removeColumn(String filePath, int x) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        EnergyMap energyMap = EnergyMap.of(image);
+        energyMap.removeColumn(x);
+        assertEnergiesMatchImage(energyMap, image.removeColumn(x));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 1",
+            "src/main/resources/8x8-images/multi.png, 2",
+            "src/main/resources/8x8-images/scene.png, 3",
+            "src/main/resources/8x8-images/sun.png, 4",
+            "src/main/resources/8x8-images/tree.png, 5"
+    })
+    void removeSeam(String filePath, long seed) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        EnergyMap energyMap = EnergyMap.of(image);
+        Random random = new Random(seed);
+        // remove seams until one column is left, comparing against a freshly computed energy map each time.
+        while (image.getWidth() > 1) {
+            int width = image.getWidth();
+            int[] seam = new int[image.getHeight()];
+            seam[0] = random.nextInt(width);
+            for (int y = 1; y < seam.length; y++) {
+                seam[y] = clamp(seam[y - 1] + random.nextInt(3) - 1, 0, width - 1);
+            }
+            List<List<Color>> rows = new ArrayList<>();
+            for (int y = 0; y < seam.length; y++) {
+                List<Color> row = new ArrayList<>(image.getRow(y));
+                row.remove(seam[y]);
+                rows.add(row);
+            }
+            image = Image.fromRows(rows);
+            energyMap.removeSeam(seam);
+            assertEnergiesMatchImage(energyMap, image);
+        }
+    }
+}
@@ -11,13 +11,14 @@ import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Stream;
 
 import static java.awt.Color.*;
 import static java.awt.Color.GREEN;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.nulondon.CollectionUtilities.map;
 import static uk.ac.nulondon.Images.*;
 
 class TestImage {
@@ -67,6 +68,83 @@ class TestImage {
         return imagesAsRows.stream();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // ORIENTATION
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * returns an image equal to `image` whose rows, rather than columns, are stored.
+     */
+    private static Image withRowsStored(Image image) {
+        return Image.fromColumns(image.getRows()).transposed();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getColumnsArguments")
+    void transposed(Image image, List<List<Color>> expectedColumns) {
+        Image transpose = image.transposed();
+        assertThat(transpose.getWidth()).isEqualTo(image.getHeight());
+        assertThat(transpose.getHeight()).isEqualTo(image.getWidth());
+        assertThat(transpose.getRows()).isEqualTo(expectedColumns);
+        assertThat(transpose.transposed()).isEqualTo(image);
+        assertThat(transpose).isEqualTo(Image.fromRows(expectedColumns));
+        assertThat(transpose.hashCode()).isEqualTo(Image.fromRows(expectedColumns).hashCode());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getColumnsArguments")
+    void getBufferedImageOfRowsStored(Image image, List<List<Color>> expectedColumns) {
+        BufferedImage bufferedImage = withRowsStored(image).getBufferedImage();
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertThat(new Color(bufferedImage.getRGB(x, y))).isEqualTo(expectedColumns.get(x).get(y));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("removeColumnArguments")
+    void removeColumnOfRowsStored(Image image, int x, Image expectedImage) {
+        assertThat(withRowsStored(image).removeColumn(x)).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("addColumnArguments")
+    void addColumnOfRowsStored(Image image, int x, List<Color> column, Image expectedImage) {
+        assertThat(withRowsStored(image).addColumn(x, column)).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("removeRowArguments")
+    void removeRowOfRowsStored(Image image, int y, Image expectedImage) {
+        assertThat(withRowsStored(image).removeRow(y)).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("addRowArguments")
+    void addRowOfRowsStored(Image image, int y, List<Color> row, Image expectedImage) {
+        assertThat(withRowsStored(image).addRow(y, row)).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("removeSeamArguments")
+    void removeSeamOfRowsStored(Image image, int[] seam, Image expectedImage) {
+        assertThat(withRowsStored(image).removeSeam(seam)).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("removeSeamArguments")
+    void addSeamOfRowsStored(Image image, int[] seam, Image removedImage) {
+        Image actualImage = withRowsStored(removedImage).addSeam(seam, image.getSeamRGB(seam));
+        assertThat(actualImage).isEqualTo(image);
+    }
+
+    @ParameterizedTest
+    @MethodSource("setColorAtArguments")
+    void setColorAtOfRowsStored(Image image, int x, int y, Color color, Image expectedImage) {
+        assertThat(withRowsStored(image).setColorAt(x, y, color)).isEqualTo(expectedImage);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // COLUMNS
     ///////////////////////////////////////////////////////////////////////////
@@ -179,6 +257,16 @@ class TestImage {
 
     }
 
+    @ParameterizedTest
+    @MethodSource("removeColumnArguments")
+    void removeColumnLeavesImageUnchanged(Image image, int x, Image expectedImage) {
+        Image imageCopy = Image.fromRows(image.getRows());
+        Image removedImage = image.removeColumn(x);
+        Image restoredImage = removedImage.addColumn(x, image.getColumn(x));
+        assertThat(image).isEqualTo(imageCopy);
+        assertThat(restoredImage).isEqualTo(image);
+    }
+
     @ParameterizedTest
     @MethodSource("getColumnArguments")
     void getColumn(Image image, int x, List<Color> expectedColumn) {
@@ -211,6 +299,169 @@ class TestImage {
         );
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // SEAMS
+    ///////////////////////////////////////////////////////////////////////////
+
+    @ParameterizedTest
+    @MethodSource("removeSeamArguments")
+    void removeSeam(Image image, int[] seam, Image expectedImage) {
+        Image actualImage = image.removeSeam(seam);
+        assertThat(actualImage).isEqualTo(expectedImage);
+    }
+
+    @ParameterizedTest
+    @MethodSource("removeSeamArguments")
+    void addSeam(Image image, int[] seam, Image removedImage) {
+        Image actualImage = removedImage.addSeam(seam, image.getSeamRGB(seam));
+        assertThat(actualImage).isEqualTo(image);
+    }
+
+    /**
+     * returns an image of random colors.
+     */
+    private static Image getRandomImage(Random random, int width, int height) {
+        int[][] rgbs = new int[height][width];
+        for (int[] row : rgbs) {
+            Arrays.setAll(row, x -> random.nextInt(1 << 24));
+        }
+        return Image.fromRows(map(List.of(rgbs), row -> map(Arrays.stream(row).boxed().toList(), Color::new)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 0",
+            "2, 1",
+            "3, 3",
+            "4, 7"
+    })
+    void removeSeams(long seed, int count) {
+        Random random = new Random(seed);
+        int width = 8;
+        int height = 6;
+        Image image = getRandomImage(random, width, height);
+        // the seams' x's in each row are random but distinct, as for seams in original coordinates.
+        int[][] seams = new int[count][height];
+        List<List<Color>> expectedRows = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            List<Integer> xs = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5, 6, 7));
+            Collections.shuffle(xs, random);
+            for (int i = 0; i < count; i++) {
+                seams[i][y] = xs.get(i);
+            }
+            List<Color> expectedRow = new ArrayList<>(image.getRow(y));
+            xs.subList(0, count).stream().sorted(Comparator.reverseOrder()).forEach(x -> expectedRow.remove((int) x));
+            expectedRows.add(expectedRow);
+        }
+        Image expectedImage = Image.fromRows(expectedRows);
+
+        for (Image storedImage : List.of(image, withRowsStored(image))) {
+            Image actualImage = storedImage.removeSeams(seams);
+            assertThat(actualImage).isEqualTo(expectedImage);
+            assertThat(actualImage.addSeams(seams, image.getSeamRGBs(seams))).isEqualTo(image);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("duplicateSeamsArguments")
+    void duplicateSeams(Image image, int[][] seams, Image expectedImage) {
+        Image actualImage = image.duplicateSeams(seams);
+        assertThat(actualImage).isEqualTo(expectedImage);
+        assertThat(actualImage.removeSeams(Image.getDuplicateSeams(seams))).isEqualTo(image);
+        assertThat(withRowsStored(image).duplicateSeams(seams)).isEqualTo(expectedImage);
+    }
+
+    public static Stream<Arguments> duplicateSeamsArguments() {
+        Color darkGray = new Color(0x40, 0x40, 0x40);
+        Color purple = new Color(0x7F, 0, 0x7F);
+        Image image = Image.fromRows(
+                List.of(
+                        List.of(BLACK, GRAY, BLUE),
+                        List.of(RED, BLUE, WHITE)
+                )
+        );
+        return Stream.of(
+                Arguments.of(
+                        image,
+                        new int[][]{{0, 1}},
+                        Image.fromRows(
+                                List.of(
+                                        List.of(BLACK, darkGray, GRAY, BLUE),
+                                        List.of(RED, BLUE, new Color(0x7F, 0x7F, 0xFF), WHITE)
+                                )
+                        )
+                ),
+                Arguments.of(
+                        image,
+                        new int[][]{{2, 0}, {0, 1}},
+                        Image.fromRows(
+                                List.of(
+                                        List.of(BLACK, darkGray, GRAY, BLUE, BLUE),
+                                        List.of(RED, purple, BLUE, new Color(0x7F, 0x7F, 0xFF), WHITE)
+                                )
+                        )
+                )
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 0",
+            "2, 1",
+            "3, 3",
+            "4, 7"
+    })
+    void removeColumns(long seed, int count) {
+        Random random = new Random(seed);
+        Image image = getRandomImage(random, 8, 6);
+        List<Integer> xs = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5, 6, 7));
+        Collections.shuffle(xs, random);
+        int[] removedXs = xs.subList(0, count).stream().mapToInt(x -> x).sorted().toArray();
+        Image expectedImage = image;
+        for (int i = count - 1; i >= 0; i--) {
+            expectedImage = expectedImage.removeColumn(removedXs[i]);
+        }
+
+        assertThat(image.removeColumns(removedXs)).isEqualTo(expectedImage);
+        assertThat(withRowsStored(image).removeColumns(removedXs)).isEqualTo(expectedImage);
+    }
+
+    public static Stream<Arguments> removeSeamArguments() {
+        Image image = getImage(0);
+        return Stream.of(
+                Arguments.of(
+                        image, new int[]{0, 0, 0},
+                        Image.fromRows(
+                                List.of(
+                                        List.of(BLUE, RED),
+                                        List.of(BLUE, RED),
+                                        List.of(RED, RED)
+                                )
+                        )
+                ),
+                Arguments.of(
+                        image, new int[]{0, 1, 2},
+                        Image.fromRows(
+                                List.of(
+                                        List.of(BLUE, RED),
+                                        List.of(RED, RED),
+                                        List.of(RED, RED)
+                                )
+                        )
+                ),
+                Arguments.of(
+                        image, new int[]{2, 1, 1},
+                        Image.fromRows(
+                                List.of(
+                                        List.of(BLUE, BLUE),
+                                        List.of(RED, RED),
+                                        List.of(RED, RED)
+                                )
+                        )
+                )
+        );
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // ROWS
     ///////////////////////////////////////////////////////////////////////////
@@ -410,6 +661,30 @@ class TestImage {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("getColorAtArguments")
+    void getRGBAt(
+            Image image,
+            int x,
+            int y,
+            Color expectedColor
+    ) {
+        int actualRGB = image.getRGBAt(x, y);
+        assertThat(actualRGB).isEqualTo(expectedColor.getRGB());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/script-generated-images/image-0.png, 0",
+            "src/main/resources/script-generated-images/image-3.png, 3",
+            "src/main/resources/script-generated-images/image-5.png, 5"
+    })
+    void fromBufferedImage(String filePath, int index) throws IOException {
+        BufferedImage bufferedImage = ImageIO.read(new File(filePath));
+        Image actualImage = Image.fromBufferedImage(bufferedImage);
+        assertThat(actualImage).isEqualTo(getImage(index));
+    }
+
     @ParameterizedTest
     @CsvSource({
             "src/main/resources/script-generated-images/image-0.png, 3",
@@ -188,6 +188,15 @@ class TestImageEditor {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("highlightColumnArguments")
+    void getUnhighlightedImage(Image image, int x, Color color, Image expectedImage) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightColumn(x, color);
+        assertThat(imageEditor.getUnhighlightedImage()).isEqualTo(image);
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImage);
+    }
+
     @ParameterizedTest
     @MethodSource("getImageStream")
     void isImageHighlighted(Image image) {
@@ -199,6 +208,28 @@ class TestImageEditor {
         assertThat(imageEditor.isImageHighlighted()).isFalse();
     }
 
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void highlightColumnKeepsPreviousHighlightVisible(Image image) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightColumn(0, GREEN);
+        Image onceHighlightedImage = imageEditor.getImage();
+        imageEditor.highlightColumn(2, RED);
+        ImageEditor expectedImageEditor = new ImageEditor(onceHighlightedImage);
+        expectedImageEditor.highlightColumn(2, RED);
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImageEditor.getImage());
+        assertThat(imageEditor.getUnhighlightedImage()).isEqualTo(onceHighlightedImage);
+
+        imageEditor.deleteHighlightedColumn();
+        assertThat(imageEditor.getImage()).isEqualTo(onceHighlightedImage.removeColumn(2));
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(onceHighlightedImage);
+        assertThat(imageEditor.getHighlightedColumnIndex()).isZero();
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(image);
+        assertThat(imageEditor.isImageEdited()).isFalse();
+    }
+
     @ParameterizedTest
     @MethodSource("getImageStream")
     void undo(Image image) {
@@ -207,4 +238,100 @@ class TestImageEditor {
         imageEditor.undo();
         assertThat(imageEditor.getImage()).isEqualTo(image);
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @MethodSource("deleteHighlightedColumnArguments")
+    void undoDeleteHighlightedColumn(Image image, int x, Image expectedImage) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightColumn(x, GREEN);
+        imageEditor.deleteHighlightedColumn();
+        imageEditor.highlightBluestColumn();
+        imageEditor.deleteHighlightedColumn();
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImage);
+        assertThat(imageEditor.isImageHighlighted()).isFalse();
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(image);
+        assertThat(imageEditor.isImageEdited()).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void removeLowestEnergySeam(Image image) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.removeLowestEnergySeam();
+        int[] seam = SeamFinder.findVerticalSeam(EnergyMap.of(image));
+        assertThat(imageEditor.getImage()).isEqualTo(image.removeSeam(seam));
+        imageEditor.removeLowestEnergySeam();
+        assertThat(imageEditor.getImage().getWidth()).isEqualTo(image.getWidth() - 2);
+        imageEditor.undo();
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(image);
+        assertThat(imageEditor.isImageEdited()).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void removeLowestEnergySeams(Image image) {
+        ImageEditor expectedImageEditor = new ImageEditor(image);
+        expectedImageEditor.removeLowestEnergySeam();
+        expectedImageEditor.removeLowestEnergySeam();
+
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightColumn(0, GREEN);
+        imageEditor.removeLowestEnergySeams(2);
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImageEditor.getImage());
+        assertThat(imageEditor.isImageHighlighted()).isFalse();
+        imageEditor.undo();
+        assertThat(imageEditor.getUnhighlightedImage()).isEqualTo(image);
+        assertThat(imageEditor.getHighlightedColumnIndex()).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void deleteColumns(Image image) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightColumn(1, GREEN);
+        imageEditor.undo();
+        // computes the column statistics, which are then updated by the deletion and its undo.
+        int bluestColumnIndex = imageEditor.getBluestColumnIndex();
+        imageEditor.highlightColumn(1, GREEN);
+        imageEditor.deleteColumns(new int[]{0, 2});
+        Image expectedImage = image.removeColumn(2).removeColumn(0);
+        assertThat(imageEditor.getImage()).isEqualTo(expectedImage);
+        assertThat(imageEditor.isImageHighlighted()).isFalse();
+        assertThat(imageEditor.getBluestColumnIndex())
+                .isEqualTo(new ImageEditor(expectedImage).getBluestColumnIndex());
+        imageEditor.undo();
+        assertThat(imageEditor.getUnhighlightedImage()).isEqualTo(image);
+        assertThat(imageEditor.getHighlightedColumnIndex()).isEqualTo(1);
+        assertThat(imageEditor.getBluestColumnIndex()).isEqualTo(bluestColumnIndex);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void insertLowestEnergySeams(Image image) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.insertLowestEnergySeams(2);
+        int[][] seams = SeamFinder.findVerticalSeams(EnergyMap.of(image), 2);
+        assertThat(imageEditor.getImage()).isEqualTo(image.duplicateSeams(seams));
+        assertThat(imageEditor.getImage().getWidth()).isEqualTo(image.getWidth() + 2);
+        imageEditor.undo();
+        assertThat(imageEditor.getImage()).isEqualTo(image);
+        assertThat(imageEditor.isImageEdited()).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void getBluestColumnIndexAfterDeletesAndUndos(Image image) {
+        ImageEditor imageEditor = new ImageEditor(image);
+        imageEditor.highlightBluestColumn();
+        imageEditor.deleteHighlightedColumn();
+        assertThat(imageEditor.getBluestColumnIndex())
+                .isEqualTo(new ImageEditor(imageEditor.getImage()).getBluestColumnIndex());
+        assertThat(imageEditor.getLowestEnergyColumnIndex())
+                .isEqualTo(new ImageEditor(imageEditor.getImage()).getLowestEnergyColumnIndex());
+        imageEditor.undo();
+        assertThat(imageEditor.getBluestColumnIndex()).isEqualTo(new ImageEditor(image).getBluestColumnIndex());
+    }
+}
@@ -0,0 +1,102 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestPngEncoder {
+    private static void assertDecodesTo(byte[] png, Image image) throws IOException {
+        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(bufferedImage.getWidth()).isEqualTo(image.getWidth());
+        assertThat(bufferedImage.getHeight()).isEqualTo(image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(bufferedImage.getRGB(x, y)).isEqualTo(image.getRGBAt(x, y));
+            }
+        }
+    }
+
+    /**
+     * inflates the concatenated data chunks of `png` as a zlib stream, which verifies the stream's checksum.
+     * returns the number of inflated bytes.
+     */
+    private static long inflateData(byte[] png) throws DataFormatException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(png, 8, png.length - 8);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        while (byteBuffer.hasRemaining()) {
+            int length = byteBuffer.getInt();
+            byte[] type = new byte[4];
+            byteBuffer.get(type);
+            if (new String(type, StandardCharsets.US_ASCII).equals("IDAT")) {
+                data.write(png, byteBuffer.position(), length);
+            }
+            byteBuffer.position(byteBuffer.position() + length + 4);
+        }
+        Inflater inflater = new Inflater();
+        inflater.setInput(data.toByteArray());
+        byte[] buffer = new byte[1 << 16];
+        while (!inflater.finished()) {
+            assertThat(inflater.inflate(buffer) > 0 || inflater.finished()).isTrue();
+        }
+        long inflatedLength = inflater.getBytesWritten();
+        inflater.end();
+        return inflatedLength;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 0, NONE, 64",
+            "src/main/resources/8x8-images/multi.png, 1, SUB, 8",
+            "src/main/resources/8x8-images/scene.png, 6, UP, 16",
+            "src/main/resources/8x8-images/sun.png, 9, AVERAGE, 1",
+            "src/main/resources/8x8-images/tree.png, -1, PAETH, 24",
+            "src/main/resources/script-generated-images/image-0.png, 1, PAETH, 1",
+            "src/main/resources/script-generated-images/image-3.png, 6, SUB, 1000"
+    })
+    void encode(String filePath, int compressionLevel, PngEncoder.Filter filter, int bandPixelCount)
+            throws IOException, DataFormatException {
+        Image image = Image.fromFilePath(filePath);
+        PngEncoder pngEncoder = new PngEncoder(compressionLevel, filter, bandPixelCount);
+        byte[] png = pngEncoder.encode(image);
+        assertDecodesTo(png, image);
+        assertThat(inflateData(png)).isEqualTo((long) image.getHeight() * (1 + 3 * image.getWidth()));
+        assertThat(pngEncoder.sequential().encode(image)).isEqualTo(png);
+        assertDecodesTo(pngEncoder.encode(image.transposed()), image.transposed());
+    }
+
+    @Test
+    void encodePresets() throws IOException {
+        Image image = Image.fromFilePath("src/main/resources/8x8-images/scene.png");
+        for (PngEncoder pngEncoder : new PngEncoder[]{PngEncoder.STORE, PngEncoder.FAST, PngEncoder.DEFAULT}) {
+            assertDecodesTo(pngEncoder.encode(image), image);
+        }
+    }
+
+    @Test
+    void combineAdlers() {
+        byte[] bytes = "the quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+        Adler32 expectedAdler32 = new Adler32();
+        expectedAdler32.update(bytes);
+        for (int split = 0; split <= bytes.length; split++) {
+            Adler32 adler1 = new Adler32();
+            adler1.update(bytes, 0, split);
+            Adler32 adler2 = new Adler32();
+            adler2.update(bytes, split, bytes.length - split);
+            assertThat(PngEncoder.combineAdlers(adler1.getValue(), adler2.getValue(), bytes.length - split))
+                    .isEqualTo(expectedAdler32.getValue());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestRawImageFile {
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/script-generated-images/image-0.png",
+            "src/main/resources/script-generated-images/image-5.png"
+    })
+    void writeAndRead(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        for (Image storedImage : new Image[]{image, image.transposed()}) {
+            Path path = directory.resolve("image" + RawImageFile.EXTENSION);
+            RawImageFile.write(storedImage, path);
+
+            assertThat(Files.size(path))
+                    .isEqualTo(RawImageFile.HEADER_LENGTH + 4L * image.getWidth() * image.getHeight());
+            assertThat(RawImageFile.read(path)).isEqualTo(storedImage);
+            assertThat(Image.fromFilePath(path.toString())).isEqualTo(storedImage);
+
+            RawImageFile rawImageFile = RawImageFile.open(path);
+            assertThat(rawImageFile.getWidth()).isEqualTo(storedImage.getWidth());
+            assertThat(rawImageFile.getHeight()).isEqualTo(storedImage.getHeight());
+            for (int y = 0; y < storedImage.getHeight(); y++) {
+                for (int x = 0; x < storedImage.getWidth(); x++) {
+                    assertThat(rawImageFile.getRGBAt(x, y)).isEqualTo(storedImage.getRGBAt(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void openRejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("image" + RawImageFile.EXTENSION);
+        Files.write(path, new byte[RawImageFile.HEADER_LENGTH + 4]);
+        assertThatThrownBy(() -> RawImageFile.open(path)).isInstanceOf(IOException.class);
+
+        Path shortPath = directory.resolve("short" + RawImageFile.EXTENSION);
+        Files.write(shortPath, new byte[3]);
+        assertThatThrownBy(() -> RawImageFile.open(shortPath)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,166 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.nulondon.CollectionUtilities.map;
+
+class TestSeamFinder {
+    private static final double TOLERANCE = 1e-9;
+
+    public static Stream<Image> getImageStream() {
+        return map(Images.imagesAsRows, Image::fromRows).stream();
+    }
+
+    /**
+     * returns the minimum energy of a vertical seam ending at (x,y), by trying every such seam.
+     */
+    private static double getMinSeamEnergyByBruteForce(EnergyMap energyMap, int x, int y) {
+        if (!energyMap.existsColumnAt(x)) return Double.MAX_VALUE;
+
+        double energy = energyMap.getEnergyAt(x, y);
+        if (y == 0) return energy;
+
+        double minAboveEnergy = Math.min(
+                getMinSeamEnergyByBruteForce(energyMap, x - 1, y - 1),
+                Math.min(
+                        getMinSeamEnergyByBruteForce(energyMap, x, y - 1),
+                        getMinSeamEnergyByBruteForce(energyMap, x + 1, y - 1)
+                )
+        );
+        return energy + minAboveEnergy;
+    }
+
+    private static void assertIsMinimumVerticalSeam(EnergyMap energyMap, int[] seam) {
+        int height = energyMap.getHeight();
+        assertThat(seam).hasSize(height);
+        for (int y = 0; y < height; y++) {
+            assertThat(energyMap.existsColumnAt(seam[y])).isTrue();
+            if (y > 0) {
+                assertThat(Math.abs(seam[y] - seam[y - 1])).isLessThanOrEqualTo(1);
+            }
+        }
+        double minSeamEnergy = Double.MAX_VALUE;
+        for (int x = 0; x < energyMap.getWidth(); x++) {
+            minSeamEnergy = Math.min(minSeamEnergy, getMinSeamEnergyByBruteForce(energyMap, x, height - 1));
+        }
+        double seamEnergy = SeamFinder.getSeamEnergy(energyMap, seam);
+        assertThat(seamEnergy).isCloseTo(minSeamEnergy, within(TOLERANCE));
+    }
+
+    /**
+     * returns a pixel source whose pixels are computed from their coordinates, thus it never holds an image.
+     */
+    private static PixelSource getGeneratedPixelSource(int width, int height) {
+        return new PixelSource() {
+            @Override
+            public int getWidth() {return width;}
+
+            @Override
+            public int getHeight() {return height;}
+
+            @Override
+            public int getRGBAt(int x, int y) {
+                int hash = (x * 0x9E3779B1) ^ (y * 0x85EBCA77);
+                return Image.toOpaque((hash ^ (hash >>> 13)) & 0xFFFFFF);
+            }
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void findVerticalSeamOfPixelSource(Image image) {
+        int[] expectedSeam = SeamFinder.findVerticalSeam(EnergyMap.of(image));
+        assertThat(SeamFinder.findVerticalSeam(image)).isEqualTo(expectedSeam);
+        // spills the directions of every row.
+        assertThat(SeamFinder.findVerticalSeam(image, 0)).isEqualTo(expectedSeam);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 1",
+            "5, 1",
+            "1, 7",
+            "37, 23",
+            "2000, 1500"
+    })
+    void findVerticalSeamOfGeneratedPixelSource(int width, int height) {
+        PixelSource pixelSource = getGeneratedPixelSource(width, height);
+        int[] seam = SeamFinder.findVerticalSeam(pixelSource, 0);
+        assertThat(seam).hasSize(height);
+        for (int y = 0; y < height; y++) {
+            assertThat(seam[y]).isBetween(0, width - 1);
+            if (y > 0) {
+                assertThat(Math.abs(seam[y] - seam[y - 1])).isLessThanOrEqualTo(1);
+            }
+        }
+        assertThat(seam).isEqualTo(SeamFinder.findVerticalSeam(pixelSource, Long.MAX_VALUE));
+        if ((long) width * height <= 1 << 12) {
+            int[][] rows = new int[height][width];
+            for (int y = 0; y < height; y++) {
+                pixelSource.getRowRGB(y, rows[y]);
+            }
+            assertThat(seam).isEqualTo(SeamFinder.findVerticalSeam(EnergyMap.of(Image.fromRowRGBs(rows))));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void findVerticalSeam(Image image) {
+        EnergyMap energyMap = EnergyMap.of(image);
+        assertIsMinimumVerticalSeam(energyMap, SeamFinder.findVerticalSeam(energyMap));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void findVerticalSeamRepeatedly(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        EnergyMap energyMap = EnergyMap.of(image);
+        while (energyMap.getWidth() > 1) {
+            int[] seam = SeamFinder.findVerticalSeam(energyMap);
+            assertIsMinimumVerticalSeam(energyMap, seam);
+            energyMap.removeSeam(seam);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 1",
+            "src/main/resources/8x8-images/multi.png, 3",
+            "src/main/resources/8x8-images/scene.png, 5",
+            "src/main/resources/8x8-images/sun.png, 7",
+            "src/main/resources/8x8-images/tree.png, 4"
+    })
+    void findVerticalSeams(String filePath, int count) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        Image expectedImage = image;
+        EnergyMap expectedEnergyMap = EnergyMap.of(image);
+        for (int i = 0; i < count; i++) {
+            int[] seam = SeamFinder.findVerticalSeam(expectedEnergyMap);
+            expectedImage = expectedImage.removeSeam(seam);
+            expectedEnergyMap.removeSeam(seam);
+        }
+
+        EnergyMap energyMap = EnergyMap.of(image);
+        int[][] seams = SeamFinder.findVerticalSeams(energyMap, count);
+
+        assertThat(seams).hasDimensions(count, image.getHeight());
+        assertThat(image.removeSeams(seams)).isEqualTo(expectedImage);
+        assertThat(energyMap.getWidth()).isEqualTo(expectedEnergyMap.getWidth());
+        for (int y = 0; y < image.getHeight(); y++) {
+            assertThat(energyMap.getEnergyRow(y)).isEqualTo(expectedEnergyMap.getEnergyRow(y));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.nulondon.CollectionUtilities.map;
+
+class TestSeamRemovalOrder {
+    public static Stream<Image> getImageStream() {
+        return map(Images.imagesAsRows, Image::fromRows).stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("getImageStream")
+    void of(Image image) {
+        SeamRemovalOrder seamRemovalOrder = SeamRemovalOrder.of(image);
+        for (int y = 0; y < image.getHeight(); y++) {
+            int finalY = y;
+            int[] rowSteps = IntStream.range(0, image.getWidth())
+                                      .map(x -> seamRemovalOrder.getRemovalStepAt(x, finalY))
+                                      .toArray();
+            assertThat(rowSteps).containsExactlyInAnyOrder(IntStream.range(0, image.getWidth()).toArray());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png",
+            "src/main/resources/8x8-images/multi.png",
+            "src/main/resources/8x8-images/scene.png",
+            "src/main/resources/8x8-images/sun.png",
+            "src/main/resources/8x8-images/tree.png"
+    })
+    void retarget(String filePath) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        SeamRemovalOrder seamRemovalOrder = SeamRemovalOrder.of(image);
+        int width = image.getWidth();
+        for (int newWidth = 1; newWidth <= width; newWidth++) {
+            int[][] seams = SeamFinder.findVerticalSeams(EnergyMap.of(image), width - newWidth);
+            assertThat(seamRemovalOrder.retarget(newWidth)).isEqualTo(image.removeSeams(seams));
+        }
+    }
+}
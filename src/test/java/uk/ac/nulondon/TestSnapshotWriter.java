@@ -0,0 +1,66 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestSnapshotWriter {
+    @Test
+    void submitSupersedesWaitingSnapshots() throws Exception {
+        Image image = Images.getImage(0);
+        List<String> writtenFilePaths = new CopyOnWriteArrayList<>();
+        CountDownLatch isFirstWriteStarted = new CountDownLatch(1);
+        CountDownLatch isFirstWriteAllowed = new CountDownLatch(1);
+        SnapshotWriter snapshotWriter = new SnapshotWriter(1, (snapshotImage, filePath) -> {
+            if (filePath.equals("a")) {
+                isFirstWriteStarted.countDown();
+                try {
+                    isFirstWriteAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            writtenFilePaths.add(filePath);
+        });
+
+        snapshotWriter.submit(image, "a");
+        isFirstWriteStarted.await();
+        // "a" is being written, thus "b" and "c" are superseded while waiting.
+        snapshotWriter.submit(image, "b");
+        snapshotWriter.submit(image, "c");
+        snapshotWriter.submit(image, "d");
+        isFirstWriteAllowed.countDown();
+        snapshotWriter.close();
+
+        assertThat(writtenFilePaths).containsExactly("a", "d");
+        assertThat(snapshotWriter.getSupersededCount()).isEqualTo(2);
+    }
+
+    @Test
+    void flushWritesEverySnapshotWithinCapacity() throws Exception {
+        Image image = Images.getImage(0);
+        List<Image> writtenImages = new CopyOnWriteArrayList<>();
+        try (SnapshotWriter snapshotWriter = new SnapshotWriter(4, (snapshotImage, filePath) -> {
+            writtenImages.add(snapshotImage);
+        })) {
+            snapshotWriter.submit(image, "a");
+            snapshotWriter.flush();
+            assertThat(writtenImages).containsExactly(image);
+        }
+    }
+
+    @Test
+    void flushThrowsFailure() {
+        SnapshotWriter snapshotWriter = new SnapshotWriter(1, (snapshotImage, filePath) -> {
+            throw new IOException("disk full");
+        });
+        snapshotWriter.submit(Images.getImage(0), "a");
+        assertThatThrownBy(snapshotWriter::close).isInstanceOf(IOException.class).hasMessage("disk full");
+    }
+}
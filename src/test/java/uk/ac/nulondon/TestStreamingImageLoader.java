@@ -0,0 +1,144 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestStreamingImageLoader {
+    @TempDir
+    Path directory;
+
+    private static void assertLoadedImageMatchesFile(StreamingImageLoader.LoadedImage loadedImage, String filePath)
+            throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        assertThat(loadedImage.image()).isEqualTo(image);
+        EnergyMap energyMap = EnergyMap.of(image);
+        EnergyMap loadedEnergyMap = loadedImage.energyMap();
+        assertThat(loadedEnergyMap.getWidth()).isEqualTo(energyMap.getWidth());
+        assertThat(loadedEnergyMap.getHeight()).isEqualTo(energyMap.getHeight());
+        for (int y = 0; y < energyMap.getHeight(); y++) {
+            assertThat(loadedEnergyMap.getEnergyRow(y)).isEqualTo(energyMap.getEnergyRow(y));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 1",
+            "src/main/resources/8x8-images/multi.png, 3",
+            "src/main/resources/8x8-images/scene.png, 8",
+            "src/main/resources/8x8-images/sun.png, 64",
+            "src/main/resources/8x8-images/tree.png, 5"
+    })
+    void load(String filePath, int bandHeight) throws IOException {
+        assertLoadedImageMatchesFile(StreamingImageLoader.load(filePath, bandHeight), filePath);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 37, 101, 1",
+            "2, 120, 90, 16",
+            "3, 64, 64, 7",
+            "4, 5, 300, 300"
+    })
+    void loadLargerImage(long seed, int width, int height, int bandHeight) throws IOException {
+        Random random = new Random(seed);
+        BufferedImage bufferedImage = new BufferedImage(width, height, TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bufferedImage.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        String filePath = directory.resolve("image.png").toString();
+        ImageIO.write(bufferedImage, "png", Path.of(filePath).toFile());
+        assertLoadedImageMatchesFile(StreamingImageLoader.load(filePath, bandHeight), filePath);
+    }
+
+    /**
+     * writes an image of random colors to `filePath` in the given format, in passes if `isProgressive` is true.
+     */
+    private static void writeRandomImage(String filePath, String formatName, boolean isProgressive)
+            throws IOException {
+        Random random = new Random(7);
+        BufferedImage bufferedImage = new BufferedImage(40, 200, TYPE_INT_RGB);
+        for (int y = 0; y < bufferedImage.getHeight(); y++) {
+            for (int x = 0; x < bufferedImage.getWidth(); x++) {
+                bufferedImage.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(formatName).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(Path.of(filePath).toFile())) {
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setProgressiveMode(
+                    isProgressive ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED
+            );
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(bufferedImage, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "png, false, 16, 13",
+            "jpg, false, 16, 13",
+            "png, true, 16, 1",
+            "jpg, true, 16, 1",
+            "png, false, 200, 1"
+    })
+    void loadHandsOverBands(String formatName, boolean isProgressive, int bandHeight, int bandCount)
+            throws IOException {
+        String filePath = directory.resolve("image." + formatName).toString();
+        writeRandomImage(filePath, formatName, isProgressive);
+
+        List<Integer> computedRowCounts = new ArrayList<>();
+        StreamingImageLoader.LoadedImage loadedImage =
+                StreamingImageLoader.load(filePath, bandHeight, computedRowCounts::add);
+        assertLoadedImageMatchesFile(loadedImage, filePath);
+        // rows decoded in one pass are handed over band by band, and rows decoded in several passes all at once.
+        assertThat(computedRowCounts).hasSize(bandCount).isSorted().endsWith(200);
+    }
+
+    @Test
+    void loadStopsDecodingWhenInterrupted() throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(400, 400, TYPE_INT_RGB);
+        String filePath = directory.resolve("image.png").toString();
+        ImageIO.write(bufferedImage, "png", Path.of(filePath).toFile());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> StreamingImageLoader.load(filePath, 1)).isInstanceOf(InterruptedIOException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+        // the decoding thread is joined before the reader is disposed.
+        assertThat(Thread.getAllStackTraces().keySet()).noneMatch(thread -> thread.getName().equals("band-decoder"));
+    }
+
+    @Test
+    void loadRejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("image.png");
+        Files.write(path, new byte[64]);
+        assertThatThrownBy(() -> StreamingImageLoader.load(path.toString())).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,204 @@
+package uk.ac.nulondon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TestTiledImage {
+    @TempDir
+    Path directory;
+
+    /**
+     * returns an image of random colors.
+     */
+    private static Image getRandomImage(long seed, int width, int height) {
+        Random random = new Random(seed);
+        int[][] rows = new int[height][width];
+        for (int[] row : rows) {
+            for (int x = 0; x < width; x++) {
+                row[x] = Image.toOpaque(random.nextInt(1 << 24));
+            }
+        }
+        return Image.fromRowRGBs(rows);
+    }
+
+    private TiledImage writeAndOpen(Image image, int tileSize, long memoryBudget) throws IOException {
+        Path path = directory.resolve("image" + TiledImage.EXTENSION);
+        TiledImage.write(image, path, tileSize);
+        return TiledImage.open(path, memoryBudget);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 23, 17, 4, 1",
+            "2, 8, 8, 8, 1024",
+            "3, 1, 9, 2, 16",
+            "4, 30, 5, 7, 400"
+    })
+    void writeAndOpen(long seed, int width, int height, int tileSize, long memoryBudget) throws IOException {
+        Image image = getRandomImage(seed, width, height);
+        try (TiledImage tiledImage = writeAndOpen(image, tileSize, memoryBudget)) {
+            assertThat(tiledImage.getWidth()).isEqualTo(width);
+            assertThat(tiledImage.getHeight()).isEqualTo(height);
+            assertThat(tiledImage.toImage()).isEqualTo(image);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertThat(tiledImage.getRGBAt(x, y)).isEqualTo(image.getRGBAt(x, y));
+                }
+            }
+            assertThat(tiledImage.getCachedTileCount()).isLessThanOrEqualTo(tiledImage.getMaxCachedTileCount());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 23, 17, 4, 1",
+            "2, 23, 17, 4, 184",
+            "3, 30, 5, 7, 360",
+            "4, 1, 9, 2, 4"
+    })
+    void writeWithinMemoryBudget(long seed, int width, int height, int tileSize, long memoryBudget)
+            throws IOException {
+        Image image = getRandomImage(seed, width, height);
+        Path path = directory.resolve("image" + TiledImage.EXTENSION);
+        TiledImage.write(image, path, tileSize);
+        Path budgetedPath = directory.resolve("budgeted" + TiledImage.EXTENSION);
+        // the budget holds fewer rows than a tile, thus each tile is written in several parts.
+        TiledImage.write(image, budgetedPath, tileSize, memoryBudget);
+        assertThat(Files.readAllBytes(budgetedPath)).isEqualTo(Files.readAllBytes(path));
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedTile() throws IOException {
+        Image image = getRandomImage(5, 8, 8);
+        // each 4x4 tile takes 64 bytes, thus two tiles fit in the budget.
+        try (TiledImage tiledImage = writeAndOpen(image, 4, 128)) {
+            assertThat(tiledImage.getMaxCachedTileCount()).isEqualTo(2);
+            tiledImage.getRGBAt(0, 0);
+            tiledImage.getRGBAt(4, 0);
+            tiledImage.getRGBAt(0, 0);
+            assertThat(tiledImage.getLoadedTileCount()).isEqualTo(2);
+            // the tile at (4,0) is the least recently used, thus it is evicted.
+            tiledImage.getRGBAt(0, 4);
+            tiledImage.getRGBAt(0, 0);
+            assertThat(tiledImage.getLoadedTileCount()).isEqualTo(3);
+            tiledImage.getRGBAt(4, 0);
+            assertThat(tiledImage.getLoadedTileCount()).isEqualTo(4);
+            assertThat(tiledImage.getCachedTileCount()).isEqualTo(2);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "src/main/resources/8x8-images/beach.png, 3",
+            "src/main/resources/8x8-images/multi.png, 5",
+            "src/main/resources/8x8-images/scene.png, 8",
+            "src/main/resources/8x8-images/sun.png, 2",
+            "src/main/resources/8x8-images/tree.png, 4"
+    })
+    void removeColumnAndSeam(String filePath, int tileSize) throws IOException {
+        Image image = Image.fromFilePath(filePath);
+        try (TiledImage tiledImage = writeAndOpen(image, tileSize, 256)) {
+            TiledImage withoutColumn = tiledImage.removeColumn(2).removeColumn(0);
+            Image expectedImage = image.removeColumn(2).removeColumn(0);
+            assertThat(withoutColumn.toImage()).isEqualTo(expectedImage);
+
+            int[] seam = SeamFinder.findVerticalSeam(withoutColumn);
+            assertThat(seam).isEqualTo(SeamFinder.findVerticalSeam(EnergyMap.of(expectedImage)));
+            try (TiledImage withoutSeam = withoutColumn.removeSeam(seam, directory.resolve("carved.nutiles"))) {
+                assertThat(withoutSeam.toImage()).isEqualTo(expectedImage.removeSeam(seam));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "6, 1, 1, 4",
+            "7, 9, 1, 2",
+            "8, 13, 11, 4",
+            "9, 20, 7, 3"
+    })
+    void getEnergies(long seed, int width, int height, int tileSize) throws IOException {
+        Image image = getRandomImage(seed, width, height);
+        EnergyMap energyMap = EnergyMap.of(image);
+        try (TiledImage tiledImage = writeAndOpen(image, tileSize, 256)) {
+            double[] energyRow = new double[width];
+            for (int y = 0; y < height; y++) {
+                tiledImage.getEnergyRow(y, energyRow);
+                for (int x = 0; x < width; x++) {
+                    assertThat(energyRow[x]).isCloseTo(energyMap.getEnergyAt(x, y), within(1e-9));
+                    assertThat(tiledImage.getEnergyAt(x, y)).isCloseTo(energyMap.getEnergyAt(x, y), within(1e-9));
+                }
+            }
+        }
+    }
+
+    @Test
+    void removeSeamDeletesTemporaryFileOnClose() throws IOException {
+        Image image = getRandomImage(10, 9, 6);
+        int[] seam = SeamFinder.findVerticalSeam(EnergyMap.of(image));
+        try (TiledImage tiledImage = writeAndOpen(image, 4, 256)) {
+            try (TiledImage withoutSeam = tiledImage.removeSeam(seam)) {
+                assertThat(withoutSeam.toImage()).isEqualTo(image.removeSeam(seam));
+            }
+            try (var paths = Files.list(directory)) {
+                assertThat(paths).containsExactly(directory.resolve("image" + TiledImage.EXTENSION));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "11, 37, 29, png, 4, 1",
+            "12, 37, 29, png, 4, 2400",
+            "13, 16, 50, bmp, 8, 1024",
+            "14, 5, 3, png, 4, 1000000",
+            "15, 21, 18, nuraw, 4, 1"
+    })
+    void writeFromFilePath(long seed, int width, int height, String extension, int tileSize, long memoryBudget)
+            throws IOException {
+        Image image = getRandomImage(seed, width, height);
+        String filePath = directory.resolve("image." + extension).toString();
+        if (extension.equals("nuraw")) {
+            RawImageFile.write(image, Path.of(filePath));
+        } else {
+            assertThat(ImageIO.write(image.getBufferedImage(), extension, Path.of(filePath).toFile())).isTrue();
+        }
+
+        Path path = directory.resolve("ingested" + TiledImage.EXTENSION);
+        TiledImage.writeFromFilePath(filePath, path, tileSize, memoryBudget);
+        try (TiledImage tiledImage = TiledImage.open(path)) {
+            assertThat(tiledImage.getTileSize()).isEqualTo(tileSize);
+            assertThat(tiledImage.toImage()).isEqualTo(image);
+        }
+        assertThat(Image.fromFilePath(path.toString())).isEqualTo(image);
+        assertThat(StreamingImageLoader.load(path.toString()).image()).isEqualTo(image);
+    }
+
+    @Test
+    void writeFromFilePathRejectsOtherFiles() throws IOException {
+        Path filePath = directory.resolve("image.png");
+        Files.write(filePath, new byte[64]);
+        Path path = directory.resolve("ingested" + TiledImage.EXTENSION);
+        assertThatThrownBy(() -> TiledImage.writeFromFilePath(filePath.toString(), path, 4, 1024))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void openRejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("image" + TiledImage.EXTENSION);
+        Files.write(path, new byte[64]);
+        assertThatThrownBy(() -> TiledImage.open(path)).isInstanceOf(IOException.class);
+    }
+}